@@ -0,0 +1,20 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.AssignmentKeyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AssignmentKeyBackfillScheduler {
+
+    @Autowired
+    private AssignmentKeyService assignmentKeyService;
+
+    // Schedules and trips saved before they carried bus and driver ids get them on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAssignmentKeys() {
+        assignmentKeyService.backfill();
+    }
+}
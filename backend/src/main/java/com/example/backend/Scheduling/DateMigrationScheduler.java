@@ -0,0 +1,29 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.DateFieldMigration;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class DateMigrationScheduler {
+
+    @Autowired
+    private DateFieldMigration dateFieldMigration;
+
+    // Convert every string date before the web server starts, so no query sees a mix of
+    // strings and dates; once the data is migrated this is one empty query per collection
+    @PostConstruct
+    public void migrateDates() {
+        long started = System.currentTimeMillis();
+        int converted = 0;
+        while (!dateFieldMigration.isComplete()) {
+            converted += dateFieldMigration.migrateNextChunk();
+        }
+        if (converted > 0) {
+            log.info("Converted {} string dates in {} ms", converted, System.currentTimeMillis() - started);
+        }
+    }
+}
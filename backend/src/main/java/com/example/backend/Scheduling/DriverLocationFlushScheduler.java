@@ -0,0 +1,42 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.LiveLocationStore;
+import com.example.backend.service.LocationHistoryService;
+import com.example.backend.service.LocationService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DriverLocationFlushScheduler {
+
+    @Autowired
+    private LiveLocationStore liveLocationStore;
+
+    @Autowired
+    private LocationHistoryService locationHistoryService;
+
+    @Autowired
+    private LocationService locationService;
+
+    // Write-behind of live driver positions, every couple of seconds by default
+    @Scheduled(fixedDelayString = "${location.flush-interval-ms:2000}")
+    public void flushDriverLocations() {
+        liveLocationStore.flush();
+    }
+
+    // Append queued points to the hourly history buckets
+    @Scheduled(fixedDelayString = "${location.history-flush-interval-ms:5000}")
+    public void flushLocationHistory() {
+        locationHistoryService.flush();
+    }
+
+    // Persist whatever is still pending when the application shuts down
+    @PreDestroy
+    public void flushOnShutdown() {
+        liveLocationStore.flush();
+        locationService.endAllTracks();
+        locationHistoryService.flush();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.LocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DriverPositionBackfillScheduler {
+
+    @Autowired
+    private LocationService locationService;
+
+    // Driver locations saved before they carried a GeoJSON position get one on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPositions() {
+        locationService.backfillPositions();
+    }
+}
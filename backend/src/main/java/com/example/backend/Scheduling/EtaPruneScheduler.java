@@ -0,0 +1,19 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.ScheduleEtaEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EtaPruneScheduler {
+
+    @Autowired
+    private ScheduleEtaEngine scheduleEtaEngine;
+
+    // Forget the arrival estimates of schedules that are no longer ongoing
+    @Scheduled(fixedDelayString = "${location.eta.prune-interval-ms:60000}")
+    public void pruneEndedEstimates() {
+        scheduleEtaEngine.pruneEnded();
+    }
+}
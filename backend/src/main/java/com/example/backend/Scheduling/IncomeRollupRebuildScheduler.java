@@ -0,0 +1,35 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.DailyTotalsIndex;
+import com.example.backend.service.IncomeRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IncomeRollupRebuildScheduler {
+
+    @Autowired
+    private IncomeRollupService incomeRollupService;
+
+    @Autowired
+    private DailyTotalsIndex dailyTotalsIndex;
+
+    // Backfill on first start, when the rollup has never been built, then load the daily totals index
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (incomeRollupService.isEmpty()) {
+            incomeRollupService.rebuild();
+        }
+        dailyTotalsIndex.reload();
+    }
+
+    // Nightly rebuild corrects any drift from failed incremental updates
+    @Scheduled(cron = "${reports.rollup-rebuild-cron:0 30 3 * * *}")
+    public void rebuildRollup() {
+        incomeRollupService.rebuild();
+        dailyTotalsIndex.reload();
+    }
+}
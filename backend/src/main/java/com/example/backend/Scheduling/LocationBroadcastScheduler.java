@@ -0,0 +1,19 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.LocationBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LocationBroadcastScheduler {
+
+    @Autowired
+    private LocationBroadcaster locationBroadcaster;
+
+    // Each driver is sent at most once per window, with its latest position
+    @Scheduled(fixedDelayString = "${location.broadcast-interval-ms:500}")
+    public void broadcastDriverLocations() {
+        locationBroadcaster.flush();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.ReportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ReportJobCleanupScheduler {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    // Free finished report results once they have expired, even if nobody asks for them again
+    @Scheduled(fixedDelayString = "${reports.jobs.cleanup-interval-ms:60000}")
+    public void purgeExpiredResults() {
+        reportJobService.purgeExpired();
+    }
+}
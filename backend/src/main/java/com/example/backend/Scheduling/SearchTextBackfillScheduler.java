@@ -0,0 +1,20 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.SearchTextService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SearchTextBackfillScheduler {
+
+    @Autowired
+    private SearchTextService searchTextService;
+
+    // Schedules and trips saved before they carried search text, and users and routes without word prefixes, get them on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSearchText() {
+        searchTextService.backfill();
+    }
+}
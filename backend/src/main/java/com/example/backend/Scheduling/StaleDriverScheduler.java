@@ -0,0 +1,19 @@
+package com.example.backend.Scheduling;
+
+import com.example.backend.service.LocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StaleDriverScheduler {
+
+    @Autowired
+    private LocationService locationService;
+
+    // Drivers whose phone stopped reporting are set offline after location.stale-threshold-seconds
+    @Scheduled(fixedDelayString = "${location.sweep-interval-ms:5000}")
+    public void expireStaleDrivers() {
+        locationService.expireStaleDrivers();
+    }
+}
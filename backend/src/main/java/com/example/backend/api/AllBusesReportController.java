@@ -4,11 +4,15 @@ package com.example.backend.api;
 import com.example.backend.dto.response.AllBusesReportDto;
 import com.example.backend.security.JwtUtil;
 import com.example.backend.service.AllBusesReportService;
+import com.example.backend.service.ReportExportService;
+import com.example.backend.util.ExportFormat;
 import com.example.backend.util.StandardResponseDto;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Set;
 
@@ -22,6 +26,9 @@ public class AllBusesReportController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private ReportExportService reportExportService;
+
     @GetMapping
     public ResponseEntity<StandardResponseDto> getAllBusesReport(
             @RequestParam String fromDate,
@@ -51,4 +58,28 @@ public class AllBusesReportController {
             );
         }
     }
-}
\ No newline at end of file
+
+    // Daily income rows per bus and route in the date range, as CSV or NDJSON
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportDailyIncome(
+            @RequestParam String fromDate,
+            @RequestParam String toDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        String token = authHeader.replace("Bearer ", "");
+        if (!jwtUtil.getRoles(token).contains("ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!ExportFormat.isValidRange(fromDate, toDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> reportExportService.exportDailyIncome(fromDate, toDate, format, out);
+        return ResponseEntity.ok()
+                .contentType(ExportFormat.mediaType(format))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"income_" + fromDate + "_" + toDate + ExportFormat.extension(format) + "\"")
+                .body(body);
+    }
+}
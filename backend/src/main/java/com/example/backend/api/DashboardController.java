@@ -2,9 +2,14 @@ package com.example.backend.api;
 
 import com.example.backend.dto.response.ResponseDashboardDto;
 import com.example.backend.service.DashboardService;
+import com.example.backend.util.ExportFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.Map;
+
 //@CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("/api/dashboard")
@@ -13,9 +18,27 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    // Either a named period (today, this_month, last_quarter, this_year, last_30_days, ...)
+    // or an explicit yyyy-MM-dd from/to range, which takes precedence
     @GetMapping
-    public ResponseDashboardDto getDashboard(@RequestParam(defaultValue = "today") String period) {
-        return dashboardService.getDashboardStats(period);
+    public ResponseEntity<ResponseDashboardDto> getDashboard(
+            @RequestParam(defaultValue = "today") String period,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to
+    ) {
+        if (from != null || to != null) {
+            if (!ExportFormat.isValidRange(from, to)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(dashboardService.getDashboardStats(LocalDate.parse(from), LocalDate.parse(to)));
+        }
+        return ResponseEntity.ok(dashboardService.getDashboardStats(period));
+    }
+
+    // Hit, miss, incremental update and invalidation counts of the dashboard cache
+    @GetMapping("/cache-stats")
+    public Map<String, Long> getCacheStats() {
+        return dashboardService.getCacheStats();
     }
 }
 
@@ -0,0 +1,98 @@
+package com.example.backend.api;
+
+import com.example.backend.dto.request.GeofenceRequestDto;
+import com.example.backend.entity.Geofence;
+import com.example.backend.security.JwtUtil;
+import com.example.backend.service.GeofenceService;
+import com.example.backend.util.StandardResponseDto;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/geofences")
+public class GeofenceController {
+
+    @Autowired
+    private GeofenceService geofenceService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @PostMapping("/create")
+    public ResponseEntity<StandardResponseDto> createGeofence(
+            @Valid @RequestBody GeofenceRequestDto dto,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        if (!isAdmin(authHeader)) {
+            return forbidden();
+        }
+        try {
+            Geofence fence = geofenceService.createGeofence(dto);
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Geofence created successfully", 201, fence),
+                    HttpStatus.CREATED
+            );
+        } catch (Exception e) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Error: " + e.getMessage(), 400, null),
+                    HttpStatus.BAD_REQUEST
+            );
+        }
+    }
+
+    @GetMapping("/all")
+    public ResponseEntity<StandardResponseDto> getAllGeofences(
+            @RequestParam(required = false) String routeId,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        if (!isAdmin(authHeader)) {
+            return forbidden();
+        }
+        List<Geofence> fences = routeId != null
+                ? geofenceService.getGeofencesByRoute(routeId)
+                : geofenceService.getAllGeofences();
+        return new ResponseEntity<>(
+                new StandardResponseDto("Geofences retrieved successfully", 200, fences),
+                HttpStatus.OK
+        );
+    }
+
+    @DeleteMapping("/delete/{id}")
+    public ResponseEntity<StandardResponseDto> deleteGeofence(
+            @PathVariable String id,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        if (!isAdmin(authHeader)) {
+            return forbidden();
+        }
+        try {
+            geofenceService.deleteGeofence(id);
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Geofence deleted successfully", 200, null),
+                    HttpStatus.OK
+            );
+        } catch (Exception e) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Error: " + e.getMessage(), 404, null),
+                    HttpStatus.NOT_FOUND
+            );
+        }
+    }
+
+    private boolean isAdmin(String authHeader) {
+        String token = authHeader.replace("Bearer ", "");
+        return jwtUtil.getRoles(token).contains("ADMIN");
+    }
+
+    private ResponseEntity<StandardResponseDto> forbidden() {
+        return new ResponseEntity<>(
+                new StandardResponseDto("Not authorized - Admin access required", 403, null),
+                HttpStatus.FORBIDDEN
+        );
+    }
+}
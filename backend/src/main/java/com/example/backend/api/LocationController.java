@@ -1,18 +1,25 @@
 package com.example.backend.api;
 
+import com.example.backend.dto.request.LocationBatchRequest;
 import com.example.backend.dto.request.LocationUpdateRequest;
 import com.example.backend.dto.response.DriverLocationResponse;
+import com.example.backend.dto.response.LocationBatchResponse;
+import com.example.backend.dto.response.ScheduleEtaResponse;
 import com.example.backend.repository.BusRepository;
+import com.example.backend.service.LocationHistoryService;
 import com.example.backend.service.LocationService;
 import com.example.backend.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -28,6 +35,7 @@ import java.util.Set;
 public class LocationController {
 
     private final LocationService locationService;
+    private final LocationHistoryService locationHistoryService;
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -62,6 +70,35 @@ public class LocationController {
         }
     }
 
+    @PostMapping("/driver/location/batch")
+    public ResponseEntity<ApiResponse<LocationBatchResponse>> updateLocationBatch(
+            @Valid @RequestBody LocationBatchRequest request,
+            @RequestHeader("Authorization") String authHeader
+    ){
+        try {
+            String token = authHeader.replace("Bearer ", "");
+            String driverUsername = jwtUtil.getUsername(token);
+            log.info("Batch location update of {} points from driver: {}", request.getPoints().size(), driverUsername);
+
+            LocationBatchResponse response = locationService.updateDriverLocations(driverUsername, request.getPoints());
+            return ResponseEntity.ok(new ApiResponse<>(
+                    "Locations updated successfully",
+                    true,
+                    response,
+                    LocalDateTime.now()
+            ));
+        } catch (Exception e) {
+            log.error("Error updating driver locations: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(
+                            "Failed to update locations: " + e.getMessage(),
+                            false,
+                            null,
+                            LocalDateTime.now()
+                    ));
+        }
+    }
+
     @GetMapping("/admin/driver-locations")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<List<DriverLocationResponse>>> getAllDriverLocations() {
@@ -114,6 +151,118 @@ public class LocationController {
         }
     }
 
+    @GetMapping("/admin/driver-locations/near")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<DriverLocationResponse>>> getDriversNear(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "1000") double radius) {
+        try {
+            List<DriverLocationResponse> locations = locationService.getActiveDriversNear(lat, lng, radius);
+
+            return ResponseEntity.ok(new ApiResponse<>(
+                    String.format("Drivers within %.0f metres retrieved successfully", radius),
+                    true,
+                    locations,
+                    LocalDateTime.now()
+            ));
+        } catch (Exception e) {
+            log.error("Error fetching nearby drivers: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(
+                            "Failed to fetch nearby drivers: " + e.getMessage(),
+                            false,
+                            null,
+                            LocalDateTime.now()
+                    ));
+        }
+    }
+
+    @GetMapping("/admin/driver-locations/within")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<DriverLocationResponse>>> getDriversInViewport(
+            @RequestParam double south,
+            @RequestParam double west,
+            @RequestParam double north,
+            @RequestParam double east) {
+        try {
+            List<DriverLocationResponse> locations = locationService.getActiveDriversInViewport(south, west, north, east);
+
+            return ResponseEntity.ok(new ApiResponse<>(
+                    "Drivers inside viewport retrieved successfully",
+                    true,
+                    locations,
+                    LocalDateTime.now()
+            ));
+        } catch (Exception e) {
+            log.error("Error fetching drivers inside viewport: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(
+                            "Failed to fetch drivers inside viewport: " + e.getMessage(),
+                            false,
+                            null,
+                            LocalDateTime.now()
+                    ));
+        }
+    }
+
+    @GetMapping("/admin/schedule-etas")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<ScheduleEtaResponse>>> getScheduleEtas() {
+        try {
+            List<ScheduleEtaResponse> etas = locationService.getScheduleEtas();
+            return ResponseEntity.ok(new ApiResponse<>(
+                    "Schedule ETAs retrieved successfully",
+                    true,
+                    etas,
+                    LocalDateTime.now()
+            ));
+        } catch (Exception e) {
+            log.error("Error fetching schedule ETAs: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(
+                            "Failed to fetch schedule ETAs: " + e.getMessage(),
+                            false,
+                            null,
+                            LocalDateTime.now()
+                    ));
+        }
+    }
+
+    @GetMapping("/schedule-etas/{scheduleNumber}")
+    public ResponseEntity<ApiResponse<ScheduleEtaResponse>> getScheduleEta(
+            @PathVariable String scheduleNumber) {
+        try {
+            Optional<ScheduleEtaResponse> eta = locationService.getScheduleEta(scheduleNumber);
+
+            if (eta.isPresent()) {
+                return ResponseEntity.ok(new ApiResponse<>(
+                        "Schedule ETA retrieved successfully",
+                        true,
+                        eta.get(),
+                        LocalDateTime.now()
+                ));
+            } else {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>(
+                                "No ETA for schedule; it is not ongoing or has no position yet",
+                                false,
+                                null,
+                                LocalDateTime.now()
+                        ));
+            }
+        } catch (Exception e) {
+            log.error("Error fetching ETA for schedule {}: {}", scheduleNumber, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(
+                            "Failed to fetch schedule ETA: " + e.getMessage(),
+                            false,
+                            null,
+                            LocalDateTime.now()
+                    ));
+        }
+    }
+
     @GetMapping("/admin/driver-locations/{username}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<DriverLocationResponse>> getDriverLocation(
@@ -176,6 +325,24 @@ public class LocationController {
         }
     }
 
+    @GetMapping(value = "/admin/history/{username}", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getDriverTrajectory(
+            @PathVariable String username,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Admin requested trajectory for driver {} from {} to {}", username, from, to);
+
+        // Points are written as they are read from the cursor, one JSON object per line
+        StreamingResponseBody body = out -> locationHistoryService.streamTrajectory(username, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/admin/driver-locations/count")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Long>> getActiveDriverCount() {
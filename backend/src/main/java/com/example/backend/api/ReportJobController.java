@@ -0,0 +1,115 @@
+package com.example.backend.api;
+
+import com.example.backend.dto.request.ReportJobRequestDto;
+import com.example.backend.dto.response.ReportJobResponse;
+import com.example.backend.security.JwtUtil;
+import com.example.backend.service.ReportJobService;
+import com.example.backend.util.StandardResponseDto;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+/**
+ * Background reports: submit, then poll the job (or subscribe to
+ * /topic/admin/report-jobs/{jobId}) and fetch the result once it has completed.
+ */
+@RestController
+@RequestMapping("/api/report-jobs")
+public class ReportJobController {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @PostMapping
+    public ResponseEntity<StandardResponseDto> submit(
+            @Valid @RequestBody ReportJobRequestDto dto,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        if (!isAdmin(authHeader)) {
+            return forbidden();
+        }
+        try {
+            ReportJobResponse job = reportJobService.submit(dto);
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Report job accepted", 202, job),
+                    HttpStatus.ACCEPTED
+            );
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Error: " + e.getMessage(), 400, null),
+                    HttpStatus.BAD_REQUEST
+            );
+        } catch (Exception e) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Error: " + e.getMessage(), 503, null),
+                    HttpStatus.SERVICE_UNAVAILABLE
+            );
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<StandardResponseDto> getJob(
+            @PathVariable String jobId,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        if (!isAdmin(authHeader)) {
+            return forbidden();
+        }
+        return reportJobService.getJob(jobId)
+                .map(job -> new ResponseEntity<>(
+                        new StandardResponseDto("Report job retrieved successfully", 200, job),
+                        HttpStatus.OK))
+                .orElseGet(() -> notFound(jobId));
+    }
+
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<StandardResponseDto> getResult(
+            @PathVariable String jobId,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        if (!isAdmin(authHeader)) {
+            return forbidden();
+        }
+        Optional<ReportJobResponse> job = reportJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return notFound(jobId);
+        }
+        Optional<Object> result = reportJobService.getResult(jobId);
+        if (result.isEmpty()) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Report is " + job.get().getStatus(), 409, job.get()),
+                    HttpStatus.CONFLICT
+            );
+        }
+        return new ResponseEntity<>(
+                new StandardResponseDto("Report retrieved successfully", 200, result.get()),
+                HttpStatus.OK
+        );
+    }
+
+    private boolean isAdmin(String authHeader) {
+        String token = authHeader.replace("Bearer ", "");
+        return jwtUtil.getRoles(token).contains("ADMIN");
+    }
+
+    private ResponseEntity<StandardResponseDto> forbidden() {
+        return new ResponseEntity<>(
+                new StandardResponseDto("Not authorized - Admin access required", 403, null),
+                HttpStatus.FORBIDDEN
+        );
+    }
+
+    private ResponseEntity<StandardResponseDto> notFound(String jobId) {
+        return new ResponseEntity<>(
+                new StandardResponseDto("Report job not found or expired: " + jobId, 404, null),
+                HttpStatus.NOT_FOUND
+        );
+    }
+}
@@ -95,20 +95,32 @@ public class ScheduleController {
     public ResponseEntity<PaginatedScheduleDto> searchSchedules(
             @RequestParam String searchText,
             @RequestParam int page,
-            @RequestParam int size
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withCount
     ) {
-        PaginatedScheduleDto results = scheduleService.search(searchText, page, size);
-        return ResponseEntity.ok(results);
+        try {
+            PaginatedScheduleDto results = scheduleService.search(searchText, page, size, cursor, withCount);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/status/{status}")
     public ResponseEntity<PaginatedScheduleDto> getSchedulesByStatus(
             @PathVariable String status,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withCount
     ) {
-        PaginatedScheduleDto result = scheduleService.getSchedulesByStatus(status, page, size);
-        return ResponseEntity.ok(result);
+        try {
+            PaginatedScheduleDto result = scheduleService.getSchedulesByStatus(status, page, size, cursor, withCount);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
 
@@ -2,16 +2,26 @@ package com.example.backend.api;
 
 import com.example.backend.dto.request.RequestTripDto;
 import com.example.backend.dto.response.ResponseTripDto;
+import com.example.backend.dto.response.TripImportResponse;
 import com.example.backend.dto.response.paginate.PaginatedTripDto;
 import com.example.backend.security.JwtUtil;
+import com.example.backend.service.ReportExportService;
+import com.example.backend.service.TripImportService;
 import com.example.backend.service.TripService;
+import com.example.backend.util.ExportFormat;
 import com.example.backend.util.StandardResponseDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,12 +38,48 @@ public class TripController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private ReportExportService reportExportService;
+
+    @Autowired
+    private TripImportService tripImportService;
+
     @PostMapping("/save")
     public String saveTrip(@RequestBody RequestTripDto requestTripDto){
         String message = tripService.saveTrip(requestTripDto);
         return "saved";
     }
 
+    // Many trips at once from a CSV file (text/csv) or a JSON array of save requests,
+    // with a report of the rows that could not be imported. An error that stops the
+    // import after some rows were saved still returns the report, with fatalError set
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StandardResponseDto> importTrips(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader("Authorization") String authHeader,
+            InputStream body
+    ) throws IOException {
+        String token = authHeader.replace("Bearer ", "");
+        if (!jwtUtil.getRoles(token).contains("ADMIN")) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto("Not authorized", 403, null), HttpStatus.FORBIDDEN
+            );
+        }
+        try {
+            TripImportResponse report = contentType.toLowerCase().startsWith("text/csv")
+                    ? tripImportService.importCsv(body)
+                    : tripImportService.importJson(body);
+            String message = report.getFatalError() != null ? "Trips partially imported" : "Trips imported";
+            return new ResponseEntity<>(
+                    new StandardResponseDto(message, 200, report), HttpStatus.OK
+            );
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto(e.getMessage(), 400, null), HttpStatus.BAD_REQUEST
+            );
+        }
+    }
+
     @GetMapping("/find-trip/{id}")
     public ResponseEntity<StandardResponseDto> findById(
             @PathVariable String id,
@@ -71,13 +117,19 @@ public class TripController {
     public Map<String, Object> getAllTrips(
             @RequestParam(defaultValue = "") String searchText,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-
-        PaginatedTripDto tripPage = tripService.search(searchText, page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withCount) {
 
         Map<String, Object> response = new HashMap<>();
-        response.put("code", 200);
-        response.put("data", tripPage);
+        try {
+            PaginatedTripDto tripPage = tripService.search(searchText, page, size, cursor, withCount);
+            response.put("code", 200);
+            response.put("data", tripPage);
+        } catch (IllegalArgumentException e) {
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+        }
         return response;
     }
 
@@ -86,7 +138,9 @@ public class TripController {
             @RequestHeader("Authorization") String authHeader,
             @RequestParam(defaultValue = "") String searchText,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withCount) {
 
         String token = authHeader.replace("Bearer ", "");
         String driverId = jwtUtil.getUserId(token); // You need a method in JwtUtil to get the user id
@@ -95,12 +149,39 @@ public class TripController {
         System.out.println("🔹 Extracted userId: " + driverId);
 
 
-        PaginatedTripDto tripPage = tripService.searchDriverTrips(driverId, searchText, page, size);
-
         Map<String, Object> response = new HashMap<>();
-        response.put("code", 200);
-        response.put("data", tripPage);
+        try {
+            PaginatedTripDto tripPage = tripService.searchDriverTrips(driverId, searchText, page, size, cursor, withCount);
+            response.put("code", 200);
+            response.put("data", tripPage);
+        } catch (IllegalArgumentException e) {
+            response.put("code", 400);
+            response.put("message", e.getMessage());
+        }
         return response;
     }
 
+    // Trips in the date range as CSV or NDJSON, streamed row by row from a cursor
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTrips(
+            @RequestParam String fromDate,
+            @RequestParam String toDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader("Authorization") String authHeader
+    ) {
+        String token = authHeader.replace("Bearer ", "");
+        if (!jwtUtil.getRoles(token).contains("ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!ExportFormat.isValidRange(fromDate, toDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> reportExportService.exportTrips(fromDate, toDate, format, out);
+        return ResponseEntity.ok()
+                .contentType(ExportFormat.mediaType(format))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"trips_" + fromDate + "_" + toDate + ExportFormat.extension(format) + "\"")
+                .body(body);
+    }
 }
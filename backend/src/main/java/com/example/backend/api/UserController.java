@@ -283,6 +283,8 @@ public class UserController {
             @RequestParam String searchText,
             @RequestParam int page,
             @RequestParam int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withCount,
             @RequestHeader("Authorization") String authHeader
     ){
         String token = authHeader.replace("Bearer ", "");
@@ -296,11 +298,17 @@ public class UserController {
                     ), HttpStatus.FORBIDDEN
             );
         }
-        return new ResponseEntity<>(
-                new StandardResponseDto(
-                        "user list",200,userService.search(searchText, page, size)
-                ), HttpStatus.OK
-        );
+        try {
+            return new ResponseEntity<>(
+                    new StandardResponseDto(
+                            "user list",200,userService.search(searchText, page, size, cursor, withCount)
+                    ), HttpStatus.OK
+            );
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(
+                    new StandardResponseDto(e.getMessage(), 400, null), HttpStatus.BAD_REQUEST
+            );
+        }
     }
 
     @GetMapping("/verify-token")
@@ -15,4 +15,12 @@ public class FilterConfig {
         registrationBean.addUrlPatterns("/driver-dashboard");// Protect dashboard endpoints
         return registrationBean;
     }
+
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(QueryCounter queryCounter) {
+        FilterRegistrationBean<QueryCountFilter> registrationBean = new FilterRegistrationBean<>();
+        registrationBean.setFilter(new QueryCountFilter(queryCounter));
+        registrationBean.addUrlPatterns("/api/*");
+        return registrationBean;
+    }
 }
\ No newline at end of file
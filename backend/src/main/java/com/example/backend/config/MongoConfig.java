@@ -0,0 +1,57 @@
+package com.example.backend.config;
+
+import com.example.backend.entity.Route;
+import com.example.backend.entity.User;
+import com.example.backend.util.DateUtils;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(new StringToLocalDateConverter()));
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer queryCounterCustomizer(QueryCounter queryCounter) {
+        return settings -> settings.addCommandListener(queryCounter);
+    }
+
+    @Bean
+    public SearchPrefixCallback searchPrefixCallback() {
+        return new SearchPrefixCallback();
+    }
+
+    // Users and routes get the prefixes of their searchable words on every save, however they were built
+    static class SearchPrefixCallback implements BeforeConvertCallback<Object> {
+        @Override
+        public Object onBeforeConvert(Object entity, String collection) {
+            if (entity instanceof User user) {
+                user.refreshSearchPrefixes();
+            } else if (entity instanceof Route route) {
+                route.refreshSearchPrefixes();
+            }
+            return entity;
+        }
+    }
+
+    // Trip and maintenance dates used to be stored as yyyy-MM-dd strings; rows the
+    // date migration has not reached yet still read into LocalDate fields
+    @ReadingConverter
+    static class StringToLocalDateConverter implements Converter<String, LocalDate> {
+        @Override
+        public LocalDate convert(String source) {
+            return DateUtils.tryParse(source);
+        }
+    }
+}
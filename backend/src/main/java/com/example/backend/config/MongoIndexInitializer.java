@@ -0,0 +1,79 @@
+package com.example.backend.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Creates the indexes declared on the entities before requests are served.
+ * A collection has at most one text index, and MongoDB refuses to create one
+ * whose fields, weights or language differ from the existing one, so an
+ * outdated text index is dropped first and recreated from the entity.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        MongoMappingContext context = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(context);
+        for (MongoPersistentEntity<?> entity : context.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            IndexOperations indexes = mongoTemplate.indexOps(entity.getCollection());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                if (index instanceof TextIndexDefinition) {
+                    dropOutdatedTextIndex(entity.getCollection(), index);
+                }
+                indexes.ensureIndex(index);
+            }
+        }
+    }
+
+    private void dropOutdatedTextIndex(String collection, IndexDefinition wanted) {
+        Document options = wanted.getIndexOptions();
+        // The definition only lists weights other than 1, MongoDB reports every field's weight
+        Map<String, Double> wantedWeights = new HashMap<>();
+        wanted.getIndexKeys().keySet().forEach(field -> wantedWeights.put(field, 1.0));
+        wantedWeights.putAll(weights(options.get("weights", Document.class)));
+        String wantedLanguage = options.getString("default_language");
+        for (Document existing : mongoTemplate.getCollection(collection).listIndexes()) {
+            if (!existing.containsKey("weights")) {
+                continue;
+            }
+            String language = existing.getString("default_language");
+            if (!wantedWeights.equals(weights(existing.get("weights", Document.class)))
+                    || !Objects.equals(wantedLanguage != null ? wantedLanguage : "english", language)) {
+                log.info("Recreating text index {} on {}: fields, weights or language changed",
+                        existing.getString("name"), collection);
+                mongoTemplate.indexOps(collection).dropIndex(existing.getString("name"));
+            }
+        }
+    }
+
+    private static Map<String, Double> weights(Document weights) {
+        Map<String, Double> byField = new HashMap<>();
+        if (weights != null) {
+            weights.forEach((field, weight) -> byField.put(field, ((Number) weight).doubleValue()));
+        }
+        return byField;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Logs how many MongoDB commands each API request issued
+@Slf4j
+@RequiredArgsConstructor
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final QueryCounter queryCounter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        queryCounter.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            log.debug("{} {} issued {} queries", request.getMethod(), request.getRequestURI(), queryCounter.count());
+            queryCounter.end();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.backend.config;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the MongoDB commands issued by the current thread. The driver calls
+ * the listener on the thread that runs the command, so a count started at the
+ * beginning of a request covers exactly that request's queries.
+ */
+@Component
+public class QueryCounter implements CommandListener {
+
+    private final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    // Start counting on this thread, from zero
+    public void begin() {
+        count.set(new int[1]);
+    }
+
+    // Commands since begin(), or 0 when this thread is not counting
+    public int count() {
+        int[] current = count.get();
+        return current != null ? current[0] : 0;
+    }
+
+    public void end() {
+        count.remove();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        int[] current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+    }
+}
@@ -43,7 +43,11 @@ public class SecurityConfig {
 
                         .requestMatchers("/api/location/**").permitAll()
 
-                        .requestMatchers("/api/all-buses-report").permitAll()
+                        .requestMatchers("/api/geofences/**").permitAll()
+
+                        .requestMatchers("/api/all-buses-report", "/api/all-buses-report/**").permitAll()
+
+                        .requestMatchers("/api/report-jobs", "/api/report-jobs/**").permitAll()
 
                         .requestMatchers("/ws/**").permitAll()
 
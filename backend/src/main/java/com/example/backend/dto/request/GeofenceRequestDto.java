@@ -0,0 +1,38 @@
+package com.example.backend.dto.request;
+
+import com.example.backend.entity.LocationPoint;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GeofenceRequestDto {
+
+    @NotBlank(message = "Route ID is required")
+    private String routeId;
+
+    @NotBlank(message = "Type is required")
+    @Pattern(regexp = "start|end", message = "Type must be 'start' or 'end'")
+    private String type;
+
+    private String name;
+
+    // Circle fence
+    private Double latitude;
+    private Double longitude;
+
+    @Positive(message = "Radius must be positive")
+    @Max(value = 5000, message = "Radius must be at most 5000 metres")
+    private Double radiusMetres;
+
+    // Polygon fence, at least three vertices; used instead of the circle when present
+    private List<LocationPoint> polygon;
+}
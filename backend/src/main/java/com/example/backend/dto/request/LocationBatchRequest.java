@@ -0,0 +1,21 @@
+package com.example.backend.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationBatchRequest {
+
+    // Buffered points in the order they were recorded; each needs a timestamp
+    @NotEmpty(message = "At least one location point is required")
+    @Size(max = 500, message = "A batch can contain at most 500 points")
+    private List<@Valid LocationUpdateRequest> points;
+}
@@ -0,0 +1,26 @@
+package com.example.backend.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobRequestDto {
+
+    @NotBlank(message = "Report type is required")
+    @Pattern(regexp = "all-buses|bus", message = "Type must be 'all-buses' or 'bus'")
+    private String type;
+
+    // Required for the single bus report
+    private String busNumber;
+
+    @NotBlank(message = "From date is required")
+    private String fromDate;
+
+    @NotBlank(message = "To date is required")
+    private String toDate;
+}
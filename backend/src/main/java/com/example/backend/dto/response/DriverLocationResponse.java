@@ -4,6 +4,7 @@ import lombok.Data;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.time.LocalDateTime;
 
 @Data
@@ -24,6 +25,10 @@ public class DriverLocationResponse {
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime updatedAt;
 
+    // Only set on responses to the driver: seconds to wait before the next report
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer nextReportIntervalSeconds;
+
     // Constructor without id for convenience
     public DriverLocationResponse(String driverUsername, Double latitude, Double longitude,
                                   Double accuracy, String status, String busNumber,
@@ -0,0 +1,18 @@
+package com.example.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationBatchResponse {
+    private int received;
+    private int accepted;
+    private int duplicates;
+    private int missingTimestamp;
+
+    // Live position after the batch was applied
+    private DriverLocationResponse latest;
+}
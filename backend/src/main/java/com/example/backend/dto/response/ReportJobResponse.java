@@ -0,0 +1,33 @@
+package com.example.backend.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobResponse {
+    private String jobId;
+    // "all-buses" or "bus"
+    private String type;
+    private String busNumber;
+    private String fromDate;
+    private String toDate;
+    // "queued", "running", "completed" or "failed"
+    private String status;
+    private int progress;
+    private String error;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime startedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime completedAt;
+}
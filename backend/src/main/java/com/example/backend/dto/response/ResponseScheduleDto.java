@@ -3,6 +3,7 @@ package com.example.backend.dto.response;
 import lombok.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Data
@@ -20,5 +21,7 @@ public class ResponseScheduleDto {
     private LocalTime arrivalTime;
     private LocalDate date;
     private String status;
+    private LocalDateTime actualDepartureTime;
+    private LocalDateTime actualArrivalTime;
 }
 
@@ -0,0 +1,33 @@
+package com.example.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScheduleEtaResponse {
+    private String scheduleNumber;
+    private String busNumber;
+    private String routeName;
+
+    private Double distanceTravelledMetres;
+    // Null when the route has no distance set
+    private Double distanceRemainingMetres;
+    private Double speedMetresPerSecond;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime plannedArrival;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime estimatedArrival;
+
+    // Positive when running late
+    private Long delaySeconds;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,22 @@
+package com.example.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScheduleEventResponse {
+    private String scheduleNumber;
+    private String busNumber;
+    private String routeName;
+    // "departed" or "arrived"
+    private String event;
+    private String status;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime at;
+}
@@ -0,0 +1,34 @@
+package com.example.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TripImportResponse {
+    private int received;
+    private int imported;
+    private int failed;
+
+    // One entry per rejected row, up to the reporting limit
+    private List<RowError> errors;
+    private boolean errorsTruncated;
+
+    // Set when the import stopped part way, e.g. on broken JSON or a failed write;
+    // rows up to "received" were processed and the rest of the file was not
+    private String fatalError;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        // Position of the trip in the file, starting at 1; a CSV header is not counted
+        private int row;
+        private String scheduleId;
+        private String message;
+    }
+}
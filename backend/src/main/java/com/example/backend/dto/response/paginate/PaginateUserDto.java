@@ -15,4 +15,6 @@ import java.util.List;
 public class PaginateUserDto {
     private Long count;
     private List<ResponseUserDto> dataList;
+    // Pass back as cursor for the next page; null on the last page
+    private String nextCursor;
 }
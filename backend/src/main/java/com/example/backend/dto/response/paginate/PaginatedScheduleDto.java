@@ -10,5 +10,8 @@ import java.util.List;
 @AllArgsConstructor
 public class PaginatedScheduleDto {
     private List<ResponseScheduleDto> schedules;
-    private long totalCount;
+    // Null when the count was not asked for
+    private Long totalCount;
+    // Pass back as cursor for the next page; null on the last page
+    private String nextCursor;
 }
@@ -14,6 +14,9 @@ import java.util.List;
 @Builder
 
 public class PaginatedTripDto {
-    private long count;
+    // Null when the count was not asked for
+    private Long count;
     private List<ResponseTripDto> dataList;
+    // Pass back as cursor for the next page; null on the last page
+    private String nextCursor;
 }
@@ -4,6 +4,7 @@
 package com.example.backend.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import java.time.LocalDateTime;
@@ -13,6 +14,7 @@ public class Bus {
     @Id
     private String id;
     
+    @Indexed
     private String busNumber;
     private Integer capacity;
     private String model;
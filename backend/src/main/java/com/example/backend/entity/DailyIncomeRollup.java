@@ -0,0 +1,38 @@
+package com.example.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trip totals for one bus on one route on one day. The id is
+ * "date:busId:routeId" so trip writes can $inc the row without reading it.
+ * Maintained by IncomeRollupService and rebuilt from the trips nightly.
+ */
+@Document(collection = "daily_income")
+@CompoundIndex(name = "date_bus_idx", def = "{'date': 1, 'busId': 1}")
+@CompoundIndex(name = "bus_date_idx", def = "{'busId': 1, 'date': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyIncomeRollup {
+
+    @Id
+    private String id;
+
+    // The day of Trip.date as a yyyy-MM-dd string (Trip.date itself is a BSON date); part of the id
+    private String date;
+    private String busId;
+    private String routeId;
+
+    private long tripCount;
+    private long passengerCount;
+    private long income;
+
+    private LocalDateTime updatedAt;
+}
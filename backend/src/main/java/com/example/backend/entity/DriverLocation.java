@@ -3,7 +3,11 @@ package com.example.backend.entity;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.index.Indexed;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -26,8 +30,20 @@ public class DriverLocation {
 
     private Double longitude;
 
+    // Same coordinates as GeoJSON so "near" and viewport queries can use the 2dsphere index
+    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint position;
+
     private Double accuracy;
 
+    // Derived from consecutive fixes: metres per second and degrees from north
+    private Double speed;
+
+    private Double heading;
+
+    @Transient
+    private Double headingChange;
+
     @Indexed
     private String status; // online, active, offline
 
@@ -45,6 +61,7 @@ public class DriverLocation {
         this.driverUsername = driverUsername;
         this.latitude = latitude;
         this.longitude = longitude;
+        this.position = latitude != null && longitude != null ? new GeoJsonPoint(longitude, latitude) : null;
         this.accuracy = accuracy;
         this.status = status;
         this.busNumber = busNumber;
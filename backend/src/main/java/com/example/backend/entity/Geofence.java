@@ -0,0 +1,38 @@
+package com.example.backend.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Area around the start or end of a route. A fence is either a circle
+ * (latitude, longitude, radiusMetres) or a polygon; the polygon wins when both are set.
+ */
+@Document(collection = "geofences")
+@Data
+@NoArgsConstructor
+public class Geofence {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String routeId;
+
+    // "start" or "end"
+    private String type;
+    private String name;
+
+    private Double latitude;
+    private Double longitude;
+    private Double radiusMetres;
+
+    private List<LocationPoint> polygon;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,41 @@
+package com.example.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Append-only location history, one document per driver per hour.
+ * The id is derived from the driver and the bucket start so writers can
+ * upsert without looking the bucket up first.
+ */
+@Document(collection = "location_history")
+@CompoundIndex(name = "driver_bucket_idx", def = "{'driverUsername': 1, 'bucketStart': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationHistoryBucket {
+
+    @Id
+    private String id;
+
+    private String driverUsername;
+
+    private String busNumber;
+
+    private LocalDateTime bucketStart;
+
+    private LocalDateTime firstTimestamp;
+
+    private LocalDateTime lastTimestamp;
+
+    private Integer count;
+
+    private List<LocationPoint> points;
+}
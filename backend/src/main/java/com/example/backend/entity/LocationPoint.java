@@ -0,0 +1,22 @@
+package com.example.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Single GPS fix stored inside a LocationHistoryBucket
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationPoint {
+
+    private Double latitude;
+
+    private Double longitude;
+
+    private Double accuracy;
+
+    private LocalDateTime timestamp;
+}
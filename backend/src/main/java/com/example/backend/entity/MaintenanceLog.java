@@ -1,15 +1,22 @@
 package com.example.backend.entity;
 
+import com.example.backend.util.LenientDateDeserializer;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Document(collection = "maintenance")
+@CompoundIndex(name = "bus_date_idx", def = "{'busNumber': 1, 'maintenanceDate': 1}")
 //@Data annotation for Getters and Setters
 @Data
 @AllArgsConstructor
@@ -19,7 +26,11 @@ public class MaintenanceLog {
     private String id;
 
     private String  busNumber;
-    private String  maintenanceDate;
+    // Sent as yyyy-MM-dd, stored as a BSON date; the older date forms are still accepted
+    @Indexed
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @JsonDeserialize(using = LenientDateDeserializer.class)
+    private LocalDate maintenanceDate;
     private String  maintenanceType;
     private Double cost;
     private String  maintenanceStatus;
@@ -42,11 +53,11 @@ public class MaintenanceLog {
         return busNumber;
     }
 
-    public void setMaintenanceDate(String maintenanceDate) {
+    public void setMaintenanceDate(LocalDate maintenanceDate) {
         this.maintenanceDate = maintenanceDate;
     }
 
-    public String getMaintenanceDate() {
+    public LocalDate getMaintenanceDate() {
         return maintenanceDate;
     }
 
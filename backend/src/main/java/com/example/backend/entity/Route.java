@@ -2,17 +2,26 @@
 package com.example.backend.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import com.example.backend.util.SearchTerms;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
-@Document(collection = "routes")
+@Document(collection = "routes", language = "none")
 public class Route {
     @Id
     private String id;
     
+    @TextIndexed(weight = 3)
     private String routeName;
+    @TextIndexed
     private String startingPoint;
+    @TextIndexed
     private String endingPoint;
+    // Prefixes of the name, starting point and ending point words, set on every save
+    @TextIndexed
+    private String searchPrefixes;
     private Double distance;
     
     private LocalDateTime createdAt;
@@ -66,6 +75,14 @@ public class Route {
         this.endingPoint = endingPoint;
     }
     
+    public String getSearchPrefixes() {
+        return searchPrefixes;
+    }
+
+    public void refreshSearchPrefixes() {
+        this.searchPrefixes = SearchTerms.prefixes(Arrays.asList(routeName, startingPoint, endingPoint));
+    }
+
     public Double getDistance() {
         return distance;
     }
@@ -1,14 +1,25 @@
 package com.example.backend.entity;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.backend.util.SearchTerms;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 
 
-@Document(collection = "schedules")
+@Document(collection = "schedules", language = "none")
+@CompoundIndex(name = "bus_date_idx", def = "{'busId.$id': 1, 'date': 1}")
+@CompoundIndex(name = "route_idx", def = "{'routeId.$id': 1}")
+@CompoundIndex(name = "date_id_idx", def = "{'date': -1, '_id': -1}")
 public class Schedule {
 
     @Id
@@ -21,11 +32,27 @@ public class Schedule {
     @DBRef
     private Route routeId;
 
+    // Copies of the bus id and its driver's id, set with the bus, so schedules
+    // and their trips can be found by driver without resolving references
+    @Indexed
+    private String assignedBusId;
+    @Indexed
+    private String assignedDriverId;
+
+    // Schedule number, bus number and route names in one text-indexed field,
+    // rebuilt whenever one of them is set; trips carry a copy of it
+    @TextIndexed
+    private String searchText;
+
     private LocalTime departureTime;
     private LocalTime arrivalTime;
     private LocalDate date;
     private String status;
 
+    // Recorded by the geofence engine when the bus leaves the start and reaches the end of the route
+    private LocalDateTime actualDepartureTime;
+    private LocalDateTime actualArrivalTime;
+
     public Schedule() {
     }
 
@@ -43,6 +70,7 @@ public class Schedule {
 
     public void setScheduleNumber(String scheduleNumber) {
         this.scheduleNumber = scheduleNumber;
+        refreshSearchText();
     }
 
     public Bus getBus() {
@@ -51,6 +79,17 @@ public class Schedule {
 
     public void setBus(Bus busId) {
         this.busId = busId;
+        this.assignedBusId = busId != null ? busId.getId() : null;
+        this.assignedDriverId = busId != null && busId.getDriver() != null ? busId.getDriver().getId() : null;
+        refreshSearchText();
+    }
+
+    public String getAssignedBusId() {
+        return assignedBusId;
+    }
+
+    public String getAssignedDriverId() {
+        return assignedDriverId;
     }
 
     public Route getRoute() {
@@ -59,6 +98,40 @@ public class Schedule {
 
     public void setRoute(Route routeId) {
         this.routeId = routeId;
+        refreshSearchText();
+    }
+
+    public String getSearchText() {
+        return searchText;
+    }
+
+    // Rebuild the search text from the current schedule number, bus and route, followed by the prefixes of its words
+    public void refreshSearchText() {
+        List<String> terms = new ArrayList<>();
+        terms.add(scheduleNumber);
+        if (busId != null) {
+            terms.add(busId.getBusNumber());
+        }
+        if (routeId != null) {
+            terms.add(routeId.getRouteName());
+            terms.add(routeId.getStartingPoint());
+            terms.add(routeId.getEndingPoint());
+        }
+        StringBuilder text = new StringBuilder();
+        for (String term : terms) {
+            appendTerm(text, term);
+        }
+        appendTerm(text, SearchTerms.prefixes(terms));
+        this.searchText = text.toString();
+    }
+
+    private static void appendTerm(StringBuilder text, String term) {
+        if (term != null && !term.isBlank()) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(term.trim());
+        }
     }
 
     public LocalTime getDepartureTime() {
@@ -91,4 +164,20 @@ public class Schedule {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public LocalDateTime getActualDepartureTime() {
+        return actualDepartureTime;
+    }
+
+    public void setActualDepartureTime(LocalDateTime actualDepartureTime) {
+        this.actualDepartureTime = actualDepartureTime;
+    }
+
+    public LocalDateTime getActualArrivalTime() {
+        return actualArrivalTime;
+    }
+
+    public void setActualArrivalTime(LocalDateTime actualArrivalTime) {
+        this.actualArrivalTime = actualArrivalTime;
+    }
 }
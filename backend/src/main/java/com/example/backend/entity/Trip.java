@@ -2,15 +2,24 @@ package com.example.backend.entity;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDate;
+
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Document(collection = "trip")
+@Document(collection = "trip", language = "none")
+@CompoundIndex(name = "schedule_date_idx", def = "{'schedule.$id': 1, 'date': 1}")
+@CompoundIndex(name = "driver_date_id_idx", def = "{'driverId': 1, 'date': -1, '_id': -1}")
+@CompoundIndex(name = "date_id_idx", def = "{'date': -1, '_id': -1}")
+@CompoundIndex(name = "bus_date_idx", def = "{'busId': 1, 'date': 1}")
 
 public class Trip {
     @Id
@@ -19,7 +28,17 @@ public class Trip {
     @DBRef
     private Schedule schedule;
 
-    private String date;
+    // Bus and driver of the schedule, kept in step by AssignmentKeyService
+    private String busId;
+    private String driverId;
+
+    // The schedule's search text, kept in step by SearchTextService
+    @TextIndexed
+    private String searchText;
+
+    // Stored as a BSON date so range queries and sorts can use the index
+    @Indexed
+    private LocalDate date;
     private String actualDepartureTime;
     private String actualArrivalTime;
     private int passengerCount;
@@ -1,10 +1,14 @@
 package com.example.backend.entity;
 
+import com.example.backend.util.SearchTerms;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 @Getter
@@ -12,16 +16,31 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-@Document(collection = "user")
+@Document(collection = "user", language = "none")
 public class User {
     @Id
     private String id;
+    @TextIndexed(weight = 2)
     private String name;
+    @TextIndexed
     private String email;
     private String mobile;
+    @TextIndexed(weight = 3)
     private String username;
     private String password;
+    @TextIndexed
     private Set<String> roles;
+    // Prefixes of the name, email and username words, set on every save
+    @TextIndexed
+    private String searchPrefixes;
+
+    public void refreshSearchPrefixes() {
+        List<String> terms = new ArrayList<>();
+        terms.add(name);
+        terms.add(email);
+        terms.add(username);
+        this.searchPrefixes = SearchTerms.prefixes(terms);
+    }
 
     
 
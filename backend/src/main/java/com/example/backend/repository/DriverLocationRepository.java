@@ -1,10 +1,13 @@
 package com.example.backend.repository;
 
 import com.example.backend.entity.DriverLocation;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +31,17 @@ public interface DriverLocationRepository extends MongoRepository<DriverLocation
 
     @Query("{'status': ?0}")
     List<DriverLocation> findByStatus(String status);
+
+    // Active drivers within maxDistance metres of a point, nearest first (2dsphere index)
+    @Query("{'position': {'$nearSphere': {'$geometry': {'type': 'Point', 'coordinates': [?0, ?1]}, '$maxDistance': ?2}}, " +
+            "'status': {'$in': ['online', 'active']}}")
+    List<DriverLocation> findActiveDriversNear(double longitude, double latitude, double maxDistanceMetres);
+
+    // Active drivers inside a viewport polygon (2dsphere index); LocationService builds the polygon
+    List<DriverLocation> findByPositionWithinAndStatusIn(GeoJsonPolygon viewport, Collection<String> statuses);
+
+    // Set position on rows written before it existed, from their latitude and longitude; returns the rows updated
+    @Query("{'position': {'$exists': false}, 'latitude': {'$type': 'number'}, 'longitude': {'$type': 'number'}}")
+    @Update(pipeline = {"{'$set': {'position': {'type': 'Point', 'coordinates': ['$longitude', '$latitude']}}}"})
+    long backfillPositions();
 }
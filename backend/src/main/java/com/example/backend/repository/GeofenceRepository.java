@@ -0,0 +1,13 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.Geofence;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GeofenceRepository extends MongoRepository<Geofence, String> {
+
+    List<Geofence> findByRouteId(String routeId);
+}
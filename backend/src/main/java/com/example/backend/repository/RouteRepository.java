@@ -55,16 +55,6 @@ public interface RouteRepository extends MongoRepository<Route, String> {
      */
     List<Route> findByDistanceBetween(Double minDistance, Double maxDistance);
     
-    /**
-     * Custom query to search routes by route name, starting point, or ending point
-     */
-    @Query("{'$or': [" +
-           "{'routeName': {'$regex': ?0, '$options': 'i'}}, " +
-           "{'startingPoint': {'$regex': ?0, '$options': 'i'}}, " +
-           "{'endingPoint': {'$regex': ?0, '$options': 'i'}}" +
-           "]}")
-    List<Route> searchRoutes(String searchTerm);
-    
     /**
      * Find all routes ordered by route name
      */
@@ -0,0 +1,72 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Schedule;
+import com.example.backend.repository.ScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ongoing and next upcoming schedule per bus, for code on the location ping
+ * path that needs to know what a bus is currently doing. Loaded on first use
+ * and dropped by ScheduleService whenever a schedule of that bus changes.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActiveScheduleCache {
+
+    private final ScheduleRepository scheduleRepository;
+
+    private final Map<String, Optional<Schedule>> ongoingByBus = new ConcurrentHashMap<>();
+    private final Map<String, Upcoming> upcomingByBus = new ConcurrentHashMap<>();
+
+    public Optional<Schedule> getOngoing(String busId) {
+        if (busId == null) {
+            return Optional.empty();
+        }
+        return ongoingByBus.computeIfAbsent(busId, id -> {
+            List<Schedule> ongoing = scheduleRepository.findByBusIdAndStatusOrderByDateAscDepartureTimeAsc(id, "ongoing");
+            return ongoing.isEmpty() ? Optional.empty() : Optional.of(ongoing.get(0));
+        });
+    }
+
+    /**
+     * First upcoming schedule of the bus for today, by departure time.
+     * Entries loaded on an earlier day are reloaded.
+     */
+    public Optional<Schedule> getUpcomingToday(String busId) {
+        if (busId == null) {
+            return Optional.empty();
+        }
+        LocalDate today = LocalDate.now();
+        Upcoming cached = upcomingByBus.get(busId);
+        if (cached != null && cached.day().equals(today)) {
+            return cached.schedule();
+        }
+        Optional<Schedule> next = scheduleRepository.findByBusIdAndStatusOrderByDateAscDepartureTimeAsc(busId, "upcoming").stream()
+                .filter(schedule -> today.equals(schedule.getDate()))
+                .findFirst();
+        upcomingByBus.put(busId, new Upcoming(today, next));
+        return next;
+    }
+
+    public void invalidate(String busId) {
+        if (busId != null) {
+            ongoingByBus.remove(busId);
+            upcomingByBus.remove(busId);
+        }
+    }
+
+    public void invalidateAll() {
+        ongoingByBus.clear();
+        upcomingByBus.clear();
+    }
+
+    private record Upcoming(LocalDate day, Optional<Schedule> schedule) {
+    }
+}
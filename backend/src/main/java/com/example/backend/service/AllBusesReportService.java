@@ -3,6 +3,11 @@ package com.example.backend.service;
 
 import com.example.backend.dto.response.AllBusesReportDto;
 
+import java.util.function.IntConsumer;
+
 public interface AllBusesReportService {
     AllBusesReportDto getAllBusesReport(String fromDate, String toDate);
+
+    // Same report, passing the percentage done to the listener as each step finishes
+    AllBusesReportDto getAllBusesReport(String fromDate, String toDate, IntConsumer progress);
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Bus;
+import com.example.backend.entity.Schedule;
+import com.example.backend.entity.Trip;
+import com.example.backend.util.AggregationUtils;
+import com.example.backend.util.DocumentRefs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the plain bus and driver ids copied onto schedules and trips in step
+ * with the bus references they come from. Schedules set theirs whenever their
+ * bus is set; this service pushes a schedule's ids down to its trips, along
+ * with their income rollup rows, follows a bus's driver change, and fills the
+ * ids in on rows written before they existed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AssignmentKeyService {
+
+    private static final int BACKFILL_CHUNK = 200;
+
+    private final MongoTemplate mongoTemplate;
+    private final IncomeRollupService incomeRollupService;
+    private final DailyTotalsIndex dailyTotalsIndex;
+
+    // Called after a schedule has been saved with a possibly different bus or route;
+    // its trips' income moves to the rollup rows of the new ones
+    public void scheduleReassigned(Schedule schedule, String previousBusId, String previousRouteId) {
+        try (DailyTotalsIndex.WriteGate ignored = dailyTotalsIndex.openWrite()) {
+            mongoTemplate.updateMulti(
+                    new Query(Criteria.where("schedule.$id").in(AggregationUtils.idValues(schedule.getScheduleNumber()))),
+                    new Update().set("busId", schedule.getAssignedBusId()).set("driverId", schedule.getAssignedDriverId()),
+                    Trip.class);
+            incomeRollupService.moveSchedule(schedule.getScheduleNumber(), previousBusId, previousRouteId,
+                    schedule.getAssignedBusId(), routeIdOf(schedule));
+        }
+    }
+
+    /**
+     * Called after a bus has been taken off its schedules, which are already saved.
+     * Their trips get the cleared ids and the schedules' new search text in one bulk
+     * write, and their income moves off the bus's rollup rows in one more.
+     */
+    public void busRemoved(String busId, List<Schedule> schedules) {
+        if (schedules.isEmpty()) {
+            return;
+        }
+        try (DailyTotalsIndex.WriteGate ignored = dailyTotalsIndex.openWrite()) {
+            BulkOperations trips = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trip.class);
+            List<IncomeRollupService.ScheduleMove> moves = new ArrayList<>(schedules.size());
+            for (Schedule schedule : schedules) {
+                trips.updateMulti(
+                        new Query(Criteria.where("schedule.$id").in(AggregationUtils.idValues(schedule.getScheduleNumber()))),
+                        new Update().set("busId", schedule.getAssignedBusId())
+                                .set("driverId", schedule.getAssignedDriverId())
+                                .set("searchText", schedule.getSearchText()));
+                moves.add(new IncomeRollupService.ScheduleMove(schedule.getScheduleNumber(),
+                        busId, routeIdOf(schedule), schedule.getAssignedBusId(), routeIdOf(schedule)));
+            }
+            trips.execute();
+            incomeRollupService.moveSchedules(moves);
+        }
+    }
+
+    // Called after a bus has been saved; only a new driver touches its schedules and trips
+    public void busDriverChanged(Bus bus, String previousDriverId) {
+        String driverId = bus.getDriver() != null ? bus.getDriver().getId() : null;
+        if (Objects.equals(driverId, previousDriverId)) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("assignedBusId").is(bus.getId())),
+                new Update().set("assignedDriverId", driverId),
+                Schedule.class);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("busId").is(bus.getId())),
+                new Update().set("driverId", driverId),
+                Trip.class);
+    }
+
+    /**
+     * Fill in the ids on schedules written before they existed, and on their trips.
+     * Works through the schedules in chunks; returns the number of schedules updated.
+     */
+    public int backfill() {
+        long started = System.currentTimeMillis();
+        Map<String, String> driverOfBus = new HashMap<>();
+        int updated = 0;
+        while (true) {
+            Query query = new Query(Criteria.where("assignedBusId").exists(false))
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(BACKFILL_CHUNK);
+            query.fields().include("_id").include("busId");
+            List<Document> schedules = mongoTemplate.find(query, Document.class,
+                    mongoTemplate.getCollectionName(Schedule.class));
+            if (schedules.isEmpty()) {
+                break;
+            }
+            for (Document schedule : schedules) {
+                String busId = DocumentRefs.idOf(schedule.get("busId"));
+                String driverId = busId != null ? driverOfBus.computeIfAbsent(busId, this::driverOf) : null;
+                Object scheduleId = schedule.get("_id");
+
+                // Guarded on the ids still missing, so a concurrent reassignment wins
+                mongoTemplate.updateFirst(
+                        new Query(Criteria.where("_id").is(scheduleId).and("assignedBusId").exists(false)),
+                        new Update().set("assignedBusId", busId).set("assignedDriverId", driverId),
+                        Schedule.class);
+                mongoTemplate.updateMulti(
+                        new Query(Criteria.where("schedule.$id").is(scheduleId).and("busId").exists(false)),
+                        new Update().set("busId", busId).set("driverId", driverId),
+                        Trip.class);
+                updated++;
+            }
+        }
+        if (updated > 0) {
+            log.info("Backfilled bus and driver ids on {} schedules in {} ms", updated, System.currentTimeMillis() - started);
+        }
+        return updated;
+    }
+
+    private static String routeIdOf(Schedule schedule) {
+        return schedule.getRoute() != null ? schedule.getRoute().getId() : null;
+    }
+
+    private String driverOf(String busId) {
+        Query query = new Query(Criteria.where("_id").in(AggregationUtils.idValues(busId)));
+        query.fields().include("driver");
+        Document bus = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Bus.class));
+        return bus != null ? DocumentRefs.idOf(bus.get("driver")) : null;
+    }
+}
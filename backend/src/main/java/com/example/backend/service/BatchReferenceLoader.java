@@ -0,0 +1,124 @@
+package com.example.backend.service;
+
+import com.example.backend.util.AggregationUtils;
+import com.example.backend.util.DocumentRefs;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads a list of entities with their @DBRef fields resolved in batches.
+ * Spring resolves each reference of each row with its own query, so a page of
+ * trips costs several queries per trip. Here the rows are read raw, the ids of
+ * every reference field are collected across the whole list, and each
+ * referenced collection is fetched once with $in, level by level. A page of
+ * trips, with schedules, buses, drivers and routes, is five queries however
+ * many rows it has.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchReferenceLoader {
+
+    // Deeper references are left to Spring's own resolution
+    private static final int MAX_DEPTH = 4;
+
+    private final MongoTemplate mongoTemplate;
+
+    public <T> List<T> findAll(Class<T> type) {
+        return find(new Query(), type);
+    }
+
+    public <T> List<T> find(Query query, Class<T> type) {
+        return read(mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(type)), type, 0);
+    }
+
+    // Rows already fetched as raw documents; their reference fields are taken out of them
+    public <T> List<T> read(List<Document> rows, Class<T> type) {
+        return read(rows, type, 0);
+    }
+
+    private <T> List<T> read(List<Document> rows, Class<T> type, int depth) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        if (depth >= MAX_DEPTH) {
+            return rows.stream().map(row -> converter.read(type, row)).toList();
+        }
+
+        MongoPersistentEntity<?> entity = converter.getMappingContext().getRequiredPersistentEntity(type);
+        List<MongoPersistentProperty> references = new ArrayList<>();
+        for (MongoPersistentProperty property : entity) {
+            if (property.isDbReference() && !property.isCollectionLike() && !property.isMap()) {
+                references.add(property);
+            }
+        }
+
+        // Take the reference ids out of each row so the converter does not resolve them one by one
+        List<Map<MongoPersistentProperty, String>> rowRefs = new ArrayList<>(rows.size());
+        Map<MongoPersistentProperty, Set<String>> idsByProperty = new HashMap<>();
+        for (Document row : rows) {
+            Map<MongoPersistentProperty, String> refs = new HashMap<>();
+            for (MongoPersistentProperty property : references) {
+                String id = DocumentRefs.idOf(row.remove(property.getFieldName()));
+                if (id != null) {
+                    refs.put(property, id);
+                    idsByProperty.computeIfAbsent(property, p -> new LinkedHashSet<>()).add(id);
+                }
+            }
+            rowRefs.add(refs);
+        }
+
+        List<T> beans = new ArrayList<>(rows.size());
+        for (Document row : rows) {
+            beans.add(converter.read(type, row));
+        }
+
+        for (MongoPersistentProperty property : references) {
+            Set<String> ids = idsByProperty.get(property);
+            if (ids == null) {
+                continue;
+            }
+            Map<String, Object> targets = load(property.getActualType(), ids, depth + 1);
+            for (int i = 0; i < beans.size(); i++) {
+                Object target = targets.get(rowRefs.get(i).get(property));
+                if (target != null) {
+                    PersistentPropertyAccessor<T> accessor = entity.getPropertyAccessor(beans.get(i));
+                    accessor.setProperty(property, target);
+                    beans.set(i, accessor.getBean());
+                }
+            }
+        }
+        return beans;
+    }
+
+    private Map<String, Object> load(Class<?> type, Set<String> ids, int depth) {
+        List<Object> idValues = new ArrayList<>();
+        for (String id : ids) {
+            idValues.addAll(AggregationUtils.idValues(id));
+        }
+        List<Document> rows = mongoTemplate.find(new Query(Criteria.where("_id").in(idValues)),
+                Document.class, mongoTemplate.getCollectionName(type));
+
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        Map<String, Object> byId = new HashMap<>();
+        for (Object bean : read(rows, type, depth)) {
+            Object id = entity.getIdentifierAccessor(bean).getIdentifier();
+            if (id != null) {
+                byId.put(id.toString(), bean);
+            }
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.MaintenanceLog;
+import com.example.backend.util.DateUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.example.backend.util.AggregationUtils.dayString;
+import static com.example.backend.util.AggregationUtils.stage;
+
+/**
+ * Totals of income and maintenance cost per day, one slot per day from the
+ * earliest recorded date, kept in Fenwick trees. The total of any date range
+ * is two prefix sums and a write adds its amount to its day, each in
+ * O(log days), so writes stay cheap however long the history grows. Loaded
+ * from the database on first use and reloaded after the nightly rollup rebuild.
+ *
+ * A write holds the write gate from before its database write until its delta
+ * has been added here, and a load holds the gate alone while it reads. A load
+ * therefore sees every write whose delta came before it and none whose delta
+ * comes after, so no delta is lost or counted twice.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DailyTotalsIndex {
+
+    private static final int TRACKED_YEARS = 50;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Shared by writes, exclusive to a load while it reads the database
+    private final ReadWriteLock writeGate = new ReentrantReadWriteLock();
+
+    // First day with a slot, or null while nothing has been recorded
+    private LocalDate origin;
+    private PrefixSums income = new PrefixSums(0);
+    private PrefixSums maintenance = new PrefixSums(0);
+    private volatile boolean loaded;
+
+    /**
+     * Total income and maintenance cost of the days from {@code from} to {@code to}, inclusive.
+     */
+    public RangeTotals sum(LocalDate from, LocalDate to) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (origin == null || to.isBefore(from)) {
+                return new RangeTotals(0, 0);
+            }
+            int end = slot(to);
+            int before = slot(from) - 1;
+            return new RangeTotals(
+                    income.prefix(end) - income.prefix(before),
+                    maintenance.prefix(end) - maintenance.prefix(before));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Open the gate for a write to trips, the income rollup or maintenance logs.
+     * Hold it from before the database write until its delta has been added,
+     * and do not read totals while holding it.
+     */
+    public WriteGate openWrite() {
+        writeGate.readLock().lock();
+        return () -> writeGate.readLock().unlock();
+    }
+
+    /**
+     * Hold every write at the gate until closed, for a rollup rebuild swapping
+     * in its result. Do not open a write or reload while holding it.
+     */
+    public WriteGate holdWrites() {
+        writeGate.writeLock().lock();
+        return () -> writeGate.writeLock().unlock();
+    }
+
+    /**
+     * Apply a write that has already been saved, from inside its write gate.
+     * Before the first load there is nothing to update; the load cannot start
+     * until the gate is closed, and will then read the write from the database.
+     */
+    public void add(LocalDate date, double incomeDelta, double maintenanceDelta) {
+        if (!loaded || !isTracked(date) || (incomeDelta == 0 && maintenanceDelta == 0)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            cover(date);
+            int slot = slot(date);
+            income.add(slot, incomeDelta);
+            maintenance.add(slot, maintenanceDelta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild every slot from the income rollup and the maintenance logs.
+     * Writes wait at the gate while the database is read; totals stay readable
+     * from the previous slots until the new ones are swapped in.
+     */
+    public void reload() {
+        long started = System.currentTimeMillis();
+        writeGate.writeLock().lock();
+        try {
+            TreeMap<LocalDate, double[]> days = new TreeMap<>();
+            for (Document row : dailySums(IncomeRollupService.COLLECTION, "date", "income")) {
+                LocalDate day = DateUtils.tryParse(row.getString("_id"));
+                if (isTracked(day)) {
+                    days.computeIfAbsent(day, d -> new double[2])[0] += doubleValue(row);
+                }
+            }
+            for (Document row : dailySums(mongoTemplate.getCollectionName(MaintenanceLog.class), "maintenanceDate", "cost")) {
+                LocalDate day = DateUtils.tryParse(row.getString("_id"));
+                if (isTracked(day)) {
+                    days.computeIfAbsent(day, d -> new double[2])[1] += doubleValue(row);
+                }
+            }
+
+            LocalDate first = days.isEmpty() ? null : days.firstKey();
+            int size = days.isEmpty() ? 0 : (int) ChronoUnit.DAYS.between(first, days.lastKey()) + 1;
+            double[] dailyIncome = new double[size];
+            double[] dailyMaintenance = new double[size];
+            days.forEach((day, amounts) -> {
+                int slot = (int) ChronoUnit.DAYS.between(first, day);
+                dailyIncome[slot] = amounts[0];
+                dailyMaintenance[slot] = amounts[1];
+            });
+            PrefixSums loadedIncome = PrefixSums.of(dailyIncome, size);
+            PrefixSums loadedMaintenance = PrefixSums.of(dailyMaintenance, size);
+
+            lock.writeLock().lock();
+            try {
+                origin = first;
+                income = loadedIncome;
+                maintenance = loadedMaintenance;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Loaded daily totals index ({} days) in {} ms", size, System.currentTimeMillis() - started);
+        } finally {
+            writeGate.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private List<Document> dailySums(String collection, String dateField, String valueField) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(dateField).type(JsonSchemaObject.Type.stringType(), JsonSchemaObject.Type.dateType())),
+                stage("$group", new Document("_id", dayString("$" + dateField))
+                        .append("total", new Document("$sum", "$" + valueField)))
+        );
+        return mongoTemplate.aggregate(aggregation, collection, Document.class).getMappedResults();
+    }
+
+    // Mistyped dates centuries away would otherwise make the arrays huge; such days are left out
+    private static boolean isTracked(LocalDate date) {
+        if (date == null) {
+            return false;
+        }
+        LocalDate today = LocalDate.now();
+        return !date.isBefore(today.minusYears(TRACKED_YEARS)) && !date.isAfter(today.plusYears(TRACKED_YEARS));
+    }
+
+    // Give the date a slot; days before the old origin start at zero
+    private void cover(LocalDate date) {
+        if (origin == null) {
+            origin = date;
+        } else if (date.isBefore(origin)) {
+            int shift = (int) ChronoUnit.DAYS.between(date, origin);
+            income = income.shifted(shift);
+            maintenance = maintenance.shifted(shift);
+            origin = date;
+        }
+        int needed = slot(date) + 1;
+        income.ensureSize(needed);
+        maintenance.ensureSize(needed);
+    }
+
+    private int slot(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(origin, date);
+    }
+
+    private static double doubleValue(Document row) {
+        return row.get("total") instanceof Number total ? total.doubleValue() : 0;
+    }
+
+    public record RangeTotals(double income, double maintenance) {
+    }
+
+    /**
+     * Per-day amounts with a Fenwick tree over them: adding to a day and summing
+     * the days up to one both take O(log n). The plain amounts are kept as well so
+     * the tree can be rebuilt when it grows, doubling its capacity each time.
+     */
+    static final class PrefixSums {
+        private double[] daily;
+        // 1-based; tree[i] holds the sum of the (i & -i) days ending at day i - 1
+        private double[] tree;
+        private int size;
+
+        PrefixSums(int capacity) {
+            daily = new double[capacity];
+            tree = new double[capacity + 1];
+        }
+
+        // Takes the first size amounts; the tree is built in O(n)
+        static PrefixSums of(double[] amounts, int size) {
+            PrefixSums sums = new PrefixSums(0);
+            sums.daily = amounts;
+            sums.size = size;
+            sums.rebuild();
+            return sums;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(int day, double amount) {
+            if (amount == 0) {
+                return;
+            }
+            daily[day] += amount;
+            for (int i = day + 1; i < tree.length; i += i & -i) {
+                tree[i] += amount;
+            }
+        }
+
+        // Sum of days 0..day; 0 before the first day, the whole total after the last
+        double prefix(int day) {
+            double total = 0;
+            for (int i = Math.min(day, size - 1) + 1; i > 0; i -= i & -i) {
+                total += tree[i];
+            }
+            return total;
+        }
+
+        void ensureSize(int needed) {
+            if (needed > daily.length) {
+                daily = Arrays.copyOf(daily, Math.max(needed, daily.length * 2));
+                rebuild();
+            }
+            size = Math.max(size, needed);
+        }
+
+        // The same amounts moved shift days later, for a new origin that many days earlier
+        PrefixSums shifted(int shift) {
+            double[] moved = new double[Math.max(size + shift, daily.length)];
+            System.arraycopy(daily, 0, moved, shift, size);
+            return of(moved, size + shift);
+        }
+
+        private void rebuild() {
+            tree = new double[daily.length + 1];
+            for (int i = 1; i <= daily.length; i++) {
+                tree[i] += daily[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= daily.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+    }
+
+    // Closes a write gate; used with try-with-resources
+    public interface WriteGate extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
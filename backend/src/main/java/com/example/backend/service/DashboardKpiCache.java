@@ -0,0 +1,242 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.response.ResponseDashboardDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dashboard figures per period, so a dashboard load is a map lookup.
+ * Income, maintenance cost and the trip count are adjusted in place by trip
+ * and maintenance writes. Fleet counts (buses, drivers, routes, schedules)
+ * are dropped by the services that change them and reloaded on next use.
+ * A period entry is also reloaded when its date window moves, e.g. at midnight.
+ * Trip and maintenance writes are passed on to the daily totals index as well.
+ */
+@Component
+@RequiredArgsConstructor
+public class DashboardKpiCache {
+
+    // Longest rolling period accepted, so the number of cached periods stays bounded
+    private static final int MAX_ROLLING_DAYS = 3660;
+    private static final Pattern ROLLING_DAYS = Pattern.compile("last_(\\d{1,4})_days");
+
+    private final DailyTotalsIndex dailyTotalsIndex;
+
+    private final Map<String, PeriodTotals> periods = new ConcurrentHashMap<>();
+    private volatile FleetCounts fleetCounts;
+
+    // Bumped by every write when it opens and when it is applied; a load only stores its
+    // result if it started with no write open and no write opened or was applied meanwhile
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger openWrites = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Cached figures for the period, loading whatever is missing through the given loaders.
+     */
+    public ResponseDashboardDto get(String period,
+                                    Function<Window, PeriodTotals> periodLoader,
+                                    Supplier<FleetCounts> fleetLoader) {
+        Window window = windowOf(period);
+
+        PeriodTotals totals = periods.get(window.period());
+        FleetCounts counts = fleetCounts;
+        if (totals != null && totals.window().equals(window) && counts != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            long seen = version.get();
+            // A write open now may already be in the database without its adjustment here
+            boolean quiet = openWrites.get() == 0;
+            if (totals == null || !totals.window().equals(window)) {
+                totals = periodLoader.apply(window);
+            }
+            if (counts == null) {
+                counts = fleetLoader.get();
+            }
+            if (quiet && version.get() == seen) {
+                periods.put(window.period(), totals);
+                fleetCounts = counts;
+            }
+        }
+
+        return new ResponseDashboardDto(
+                counts.buses(),
+                counts.drivers(),
+                counts.routes(),
+                counts.schedules(),
+                totals.trips(),
+                totals.income(),
+                totals.maintenance(),
+                totals.income() - totals.maintenance()
+        );
+    }
+
+    /**
+     * Open before the database write of a trip or maintenance change and close
+     * after its adjustment here. Period loads running meanwhile are not cached,
+     * since they may already include the write that the adjustment adds again,
+     * and the daily totals index cannot reload in between.
+     */
+    public DailyTotalsIndex.WriteGate openWrite() {
+        DailyTotalsIndex.WriteGate indexGate = dailyTotalsIndex.openWrite();
+        openWrites.incrementAndGet();
+        version.incrementAndGet();
+        return () -> {
+            version.incrementAndGet();
+            openWrites.decrementAndGet();
+            indexGate.close();
+        };
+    }
+
+    public void tripAdded(LocalDate date, int income) {
+        adjust(date, income, 0, 1);
+    }
+
+    // Several trips on one day, applied as one adjustment
+    public void tripsAdded(LocalDate date, int trips, long income) {
+        adjust(date, income, 0, trips);
+    }
+
+    public void tripRemoved(LocalDate date, int income) {
+        adjust(date, -income, 0, -1);
+    }
+
+    public void tripChanged(LocalDate oldDate, int oldIncome, LocalDate newDate, int newIncome) {
+        adjust(oldDate, -oldIncome, 0, 0);
+        adjust(newDate, newIncome, 0, 0);
+    }
+
+    public void maintenanceAdded(LocalDate date, Double cost) {
+        adjust(date, 0, cost != null ? cost : 0, 0);
+    }
+
+    public void maintenanceRemoved(LocalDate date, Double cost) {
+        adjust(date, 0, cost != null ? -cost : 0, 0);
+    }
+
+    // Called when buses, drivers, routes or schedules are created or deleted
+    public void invalidateFleetCounts() {
+        version.incrementAndGet();
+        fleetCounts = null;
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Fleet counts, loading them through the given loader when they are not cached.
+     */
+    public FleetCounts getFleetCounts(Supplier<FleetCounts> fleetLoader) {
+        FleetCounts counts = fleetCounts;
+        if (counts != null) {
+            hits.incrementAndGet();
+            return counts;
+        }
+        misses.incrementAndGet();
+        long seen = version.get();
+        counts = fleetLoader.get();
+        if (version.get() == seen) {
+            fleetCounts = counts;
+        }
+        return counts;
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("incrementalUpdates", incrementalUpdates.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    /**
+     * The trip count on the dashboard covers all trips, so it changes with every
+     * add and remove; income and cost only change for periods containing the date.
+     */
+    private void adjust(LocalDate date, double income, double maintenance, long trips) {
+        dailyTotalsIndex.add(date, income, maintenance);
+        version.incrementAndGet();
+        for (String period : periods.keySet()) {
+            periods.computeIfPresent(period, (k, totals) -> {
+                boolean inWindow = date != null && totals.window().contains(date);
+                return new PeriodTotals(
+                        totals.window(),
+                        totals.trips() + trips,
+                        totals.income() + (inWindow ? income : 0),
+                        totals.maintenance() + (inWindow ? maintenance : 0));
+            });
+        }
+        incrementalUpdates.incrementAndGet();
+    }
+
+    /**
+     * Date window of a dashboard period: today, this/last month, quarter or year,
+     * or last_N_days ending today. Unknown periods fall back to today.
+     */
+    public static Window windowOf(String period) {
+        LocalDate today = LocalDate.now();
+        String name = period.toLowerCase();
+        Matcher rolling = ROLLING_DAYS.matcher(name);
+        if (rolling.matches()) {
+            int days = Integer.parseInt(rolling.group(1));
+            if (days >= 1 && days <= MAX_ROLLING_DAYS) {
+                return new Window(name, today.minusDays(days - 1), today);
+            }
+        }
+        switch (name) {
+            case "this_month":
+                YearMonth thisMonth = YearMonth.now();
+                return new Window("this_month", thisMonth.atDay(1), thisMonth.atEndOfMonth());
+            case "last_month":
+                YearMonth lastMonth = YearMonth.now().minusMonths(1);
+                return new Window("last_month", lastMonth.atDay(1), lastMonth.atEndOfMonth());
+            case "this_quarter":
+                LocalDate quarterStart = quarterStart(today);
+                return new Window("this_quarter", quarterStart, quarterStart.plusMonths(3).minusDays(1));
+            case "last_quarter":
+                LocalDate lastQuarterStart = quarterStart(today).minusMonths(3);
+                return new Window("last_quarter", lastQuarterStart, lastQuarterStart.plusMonths(3).minusDays(1));
+            case "this_year":
+                return new Window("this_year", today.withDayOfYear(1), today.withMonth(12).withDayOfMonth(31));
+            case "last_year":
+                LocalDate lastYear = today.minusYears(1);
+                return new Window("last_year", lastYear.withDayOfYear(1), lastYear.withMonth(12).withDayOfMonth(31));
+            case "today":
+            default:
+                return new Window("today", today, today);
+        }
+    }
+
+    private static LocalDate quarterStart(LocalDate date) {
+        int firstMonth = (date.getMonthValue() - 1) / 3 * 3 + 1;
+        return LocalDate.of(date.getYear(), firstMonth, 1);
+    }
+
+    public record Window(String period, LocalDate start, LocalDate end) {
+        public boolean contains(LocalDate date) {
+            return !date.isBefore(start) && !date.isAfter(end);
+        }
+    }
+
+    public record PeriodTotals(Window window, long trips, double income, double maintenance) {
+    }
+
+    public record FleetCounts(long buses, long drivers, long routes, long schedules) {
+    }
+}
@@ -2,6 +2,11 @@ package com.example.backend.service;
 
 import com.example.backend.dto.response.ResponseDashboardDto;
 
+import java.time.LocalDate;
+import java.util.Map;
+
 public interface DashboardService {
     ResponseDashboardDto getDashboardStats(String period);
+    ResponseDashboardDto getDashboardStats(LocalDate from, LocalDate to);
+    Map<String, Long> getCacheStats();
 }
@@ -0,0 +1,121 @@
+package com.example.backend.service;
+
+import com.example.backend.util.DateUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Converts trip and maintenance dates stored as yyyy-MM-dd strings into BSON
+ * dates, one small chunk at a time. It runs to the end on startup, before
+ * requests are served, because date range queries and date sorts only see
+ * BSON dates and would silently leave out rows still holding a string. Each
+ * chunk walks forward by _id and updates a row only if it still holds the
+ * string that was read. Values that cannot be parsed are moved aside to
+ * "<field>Unparsed".
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DateFieldMigration {
+
+    @Value("${migration.dates.chunk-size:500}")
+    private int chunkSize;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final List<Target> targets = List.of(
+            new Target("trip", "date"),
+            new Target("maintenance", "maintenanceDate"));
+
+    public boolean isComplete() {
+        return targets.stream().allMatch(target -> target.done);
+    }
+
+    /**
+     * Migrate the next chunk of the first unfinished collection.
+     * Returns the number of rows converted.
+     */
+    public synchronized int migrateNextChunk() {
+        for (Target target : targets) {
+            if (!target.done) {
+                return migrateChunk(target);
+            }
+        }
+        return 0;
+    }
+
+    private int migrateChunk(Target target) {
+        Criteria criteria = Criteria.where(target.field).type(2);
+        if (target.lastId != null) {
+            criteria = criteria.and("_id").gt(target.lastId);
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(chunkSize);
+        query.fields().include(target.field);
+
+        List<Document> rows = mongoTemplate.find(query, Document.class, target.collection);
+        if (rows.isEmpty()) {
+            target.done = true;
+            log.info("Date migration of {}.{} finished: {} converted, {} unparsed",
+                    target.collection, target.field, target.converted, target.unparsed);
+            return 0;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, target.collection);
+        int converted = 0;
+        for (Document row : rows) {
+            String value = row.getString(target.field);
+            Query unchanged = new Query(Criteria.where("_id").is(row.get("_id")).and(target.field).is(value));
+            LocalDate date;
+            try {
+                date = DateUtils.parseLenient(value);
+            } catch (IllegalArgumentException e) {
+                date = null;
+            }
+            if (date != null) {
+                // Same representation Spring uses when it writes a LocalDate
+                bulk.updateOne(unchanged, new Update().set(target.field,
+                        Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant())));
+                converted++;
+            } else {
+                bulk.updateOne(unchanged, new Update()
+                        .set(target.field + "Unparsed", value)
+                        .unset(target.field));
+                target.unparsed++;
+            }
+        }
+        bulk.execute();
+
+        target.converted += converted;
+        target.lastId = rows.get(rows.size() - 1).get("_id");
+        log.debug("Date migration of {}.{}: {} rows so far", target.collection, target.field, target.converted);
+        return converted;
+    }
+
+    private static final class Target {
+        private final String collection;
+        private final String field;
+        private Object lastId;
+        private boolean done;
+        private long converted;
+        private long unparsed;
+
+        private Target(String collection, String field) {
+            this.collection = collection;
+            this.field = field;
+        }
+    }
+}
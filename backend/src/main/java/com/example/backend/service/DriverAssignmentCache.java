@@ -0,0 +1,99 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Bus;
+import com.example.backend.entity.User;
+import com.example.backend.repository.BusRepository;
+import com.example.backend.repository.UserRepo;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of which bus each driver is assigned to, keyed by username.
+ * Assignments change rarely, so the location ping path reads from here
+ * instead of querying users and buses on every update. Entries are
+ * dropped by the bus and user write paths and reloaded on next use.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverAssignmentCache {
+
+    private final BusRepository busRepository;
+    private final UserRepo userRepo;
+
+    private final Map<String, Assignment> assignments = new ConcurrentHashMap<>();
+    // Bumped by every invalidation; a load only keeps its entry if none happened while it read
+    private final AtomicLong generation = new AtomicLong();
+
+    // Preload every driver that currently has a bus
+    @PostConstruct
+    public void warmUp() {
+        try {
+            for (Bus bus : busRepository.findAll()) {
+                User driver = bus.getDriver();
+                if (driver != null && driver.getUsername() != null) {
+                    assignments.put(driver.getUsername(),
+                            new Assignment(driver.getId(), bus.getId(), bus.getBusNumber()));
+                }
+            }
+            log.info("Loaded {} driver assignments", assignments.size());
+        } catch (Exception e) {
+            log.error("Failed to warm up driver assignment cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Assignment for the given username. Users without a bus are cached too,
+     * with null bus fields; unknown usernames are not cached.
+     */
+    public Optional<Assignment> get(String username) {
+        Assignment cached = assignments.get(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long started = generation.get();
+        Optional<User> user = userRepo.findByUsername(username);
+        if (user.isEmpty()) {
+            return Optional.empty();
+        }
+        Bus bus = busRepository.findBusesByDriverId(user.get().getId());
+        Assignment loaded = bus != null
+                ? new Assignment(user.get().getId(), bus.getId(), bus.getBusNumber())
+                : new Assignment(user.get().getId(), null, null);
+        // An invalidation during the load may have been for the rows just read; drop the
+        // entry again rather than keep a stale one. One after this check removes it itself.
+        assignments.put(username, loaded);
+        if (generation.get() != started) {
+            assignments.remove(username, loaded);
+        }
+        return Optional.of(loaded);
+    }
+
+    public String getBusNumber(String username) {
+        return get(username).map(Assignment::busNumber).orElse(null);
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            generation.incrementAndGet();
+            assignments.remove(username);
+        }
+    }
+
+    public void invalidateDriverOf(Bus bus) {
+        if (bus != null && bus.getDriver() != null) {
+            invalidate(bus.getDriver().getUsername());
+        }
+    }
+
+    public record Assignment(String userId, String busId, String busNumber) {
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.response.ScheduleEventResponse;
+import com.example.backend.entity.Geofence;
+import com.example.backend.entity.Schedule;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves schedules through their statuses from live positions.
+ * A bus with an upcoming schedule today is watched against the start fences of
+ * that schedule's route: once it has been inside one and leaves, the schedule
+ * becomes ongoing. A bus with an ongoing schedule is watched against the end
+ * fences: entering one records the arrival time. The schedule stays ongoing
+ * until the driver enters the trip, which completes it. Fences of other routes are ignored.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GeofenceEngine {
+
+    public static final String SCHEDULE_EVENTS_TOPIC = "/topic/admin/schedule-events";
+
+    private final GeofenceIndex geofenceIndex;
+    private final ActiveScheduleCache activeScheduleCache;
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationService notificationService;
+
+    @Value("${geofence.departure-window-minutes:60}")
+    private long departureWindowMinutes;
+
+    // Bus id -> schedule number, for buses currently waiting inside a start fence
+    private final Map<String, String> atStart = new ConcurrentHashMap<>();
+
+    public void evaluate(String busId, double latitude, double longitude, LocalDateTime at) {
+        Optional<Schedule> ongoing = activeScheduleCache.getOngoing(busId);
+        if (ongoing.isPresent()) {
+            atStart.remove(busId);
+            if (ongoing.get().getActualArrivalTime() == null && inFence(ongoing.get(), "end", latitude, longitude)) {
+                arrive(busId, ongoing.get(), at);
+            }
+            return;
+        }
+
+        Optional<Schedule> upcoming = activeScheduleCache.getUpcomingToday(busId);
+        if (upcoming.isEmpty() || !departureWindowOpen(upcoming.get(), at)) {
+            atStart.remove(busId);
+            return;
+        }
+        Schedule schedule = upcoming.get();
+        if (inFence(schedule, "start", latitude, longitude)) {
+            atStart.put(busId, schedule.getScheduleNumber());
+        } else if (atStart.remove(busId, schedule.getScheduleNumber())) {
+            depart(busId, schedule, at);
+        }
+    }
+
+    private boolean inFence(Schedule schedule, String type, double latitude, double longitude) {
+        if (schedule.getRoute() == null) {
+            return false;
+        }
+        String routeId = schedule.getRoute().getId();
+        for (Geofence fence : geofenceIndex.containing(latitude, longitude)) {
+            if (routeId.equals(fence.getRouteId()) && type.equals(fence.getType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean departureWindowOpen(Schedule schedule, LocalDateTime at) {
+        if (schedule.getDate() == null || schedule.getDepartureTime() == null) {
+            return false;
+        }
+        LocalDateTime departure = schedule.getDate().atTime(schedule.getDepartureTime());
+        return !at.isBefore(departure.minusMinutes(departureWindowMinutes));
+    }
+
+    private void depart(String busId, Schedule schedule, LocalDateTime at) {
+        if (transition(schedule, "upcoming", "ongoing", "actualDepartureTime", at)) {
+            activeScheduleCache.invalidate(busId);
+            String busNumber = busNumberOf(schedule);
+            String routeName = routeNameOf(schedule);
+            notificationService.sendInfo(
+                    "admin",
+                    "Bus " + busNumber + " Started Trip!",
+                    "Bus " + busNumber + " Started journey at " + routeName);
+            emit(new ScheduleEventResponse(schedule.getScheduleNumber(), busNumber, routeName, "departed", "ongoing", at));
+        }
+    }
+
+    private void arrive(String busId, Schedule schedule, LocalDateTime at) {
+        if (recordArrival(schedule, at)) {
+            // Reload so the cached schedule carries the arrival time and later pings skip the fence check
+            activeScheduleCache.invalidate(busId);
+            String busNumber = busNumberOf(schedule);
+            String routeName = routeNameOf(schedule);
+            notificationService.sendInfo(
+                    "admin",
+                    "Bus " + busNumber + " Arrived!",
+                    "Bus " + busNumber + " Arrived at the end of " + routeName);
+            emit(new ScheduleEventResponse(schedule.getScheduleNumber(), busNumber, routeName, "arrived", "ongoing", at));
+        }
+    }
+
+    // Sets the arrival time once, leaving the status for the driver's trip entry to complete
+    private boolean recordArrival(Schedule schedule, LocalDateTime at) {
+        try {
+            UpdateResult result = mongoTemplate.updateFirst(
+                    new Query(Criteria.where("_id").is(schedule.getScheduleNumber())
+                            .and("status").is("ongoing")
+                            .and("actualArrivalTime").is(null)),
+                    new Update().set("actualArrivalTime", at),
+                    Schedule.class);
+            if (result.getModifiedCount() == 0) {
+                return false;
+            }
+            log.info("Schedule {} arrived at {}", schedule.getScheduleNumber(), at);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to record arrival of schedule {}: {}", schedule.getScheduleNumber(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Only applies if the schedule is still in the expected status, so a manual change made meanwhile wins
+    private boolean transition(Schedule schedule, String from, String to, String timeField, LocalDateTime at) {
+        try {
+            UpdateResult result = mongoTemplate.updateFirst(
+                    new Query(Criteria.where("_id").is(schedule.getScheduleNumber()).and("status").is(from)),
+                    new Update().set("status", to).set(timeField, at),
+                    Schedule.class);
+            if (result.getModifiedCount() == 0) {
+                return false;
+            }
+            log.info("Schedule {} moved from {} to {} at {}", schedule.getScheduleNumber(), from, to, at);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to move schedule {} to {}: {}", schedule.getScheduleNumber(), to, e.getMessage());
+            return false;
+        }
+    }
+
+    private void emit(ScheduleEventResponse event) {
+        try {
+            messagingTemplate.convertAndSend(SCHEDULE_EVENTS_TOPIC, event);
+        } catch (Exception e) {
+            log.error("Error broadcasting schedule event for {}: {}", event.getScheduleNumber(), e.getMessage());
+        }
+    }
+
+    private String busNumberOf(Schedule schedule) {
+        return schedule.getBus() != null ? schedule.getBus().getBusNumber() : null;
+    }
+
+    private String routeNameOf(Schedule schedule) {
+        return schedule.getRoute() != null ? schedule.getRoute().getRouteName() : null;
+    }
+}
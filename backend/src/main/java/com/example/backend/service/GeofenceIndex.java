@@ -0,0 +1,147 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Geofence;
+import com.example.backend.entity.LocationPoint;
+import com.example.backend.repository.GeofenceRepository;
+import com.example.backend.util.GeoUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * In-memory grid index of all geofences. Each fence is listed in every grid
+ * cell its bounding box touches, so finding the fences around a point is one
+ * map lookup plus an exact check of the few fences in that cell, however many
+ * fences exist in total.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GeofenceIndex {
+
+    // Roughly 1.1 km of latitude per cell
+    private static final double CELL_DEGREES = 0.01;
+    private static final double METRES_PER_DEGREE = 111_320.0;
+
+    private final GeofenceRepository geofenceRepository;
+
+    // Cell lists are replaced, never modified, so lookups need no locking
+    private final Map<Long, List<Geofence>> cells = new ConcurrentHashMap<>();
+    private final Map<String, Geofence> byId = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        try {
+            for (Geofence fence : geofenceRepository.findAll()) {
+                add(fence);
+            }
+            log.info("Indexed {} geofences", byId.size());
+        } catch (Exception e) {
+            log.error("Failed to load geofences: {}", e.getMessage());
+        }
+    }
+
+    public synchronized void add(Geofence fence) {
+        remove(fence.getId());
+        byId.put(fence.getId(), fence);
+        forEachCell(fence, key -> cells.compute(key, (k, list) -> {
+            List<Geofence> updated = list == null ? new ArrayList<>() : new ArrayList<>(list);
+            updated.add(fence);
+            return List.copyOf(updated);
+        }));
+    }
+
+    public synchronized void remove(String fenceId) {
+        Geofence existing = byId.remove(fenceId);
+        if (existing == null) {
+            return;
+        }
+        forEachCell(existing, key -> cells.computeIfPresent(key, (k, list) -> {
+            List<Geofence> updated = list.stream().filter(f -> !f.getId().equals(fenceId)).toList();
+            return updated.isEmpty() ? null : updated;
+        }));
+    }
+
+    /**
+     * Fences that contain the given point.
+     */
+    public List<Geofence> containing(double latitude, double longitude) {
+        List<Geofence> candidates = cells.get(cellKey(cellOf(latitude), cellOf(longitude)));
+        if (candidates == null) {
+            return List.of();
+        }
+        List<Geofence> hits = new ArrayList<>();
+        for (Geofence fence : candidates) {
+            if (contains(fence, latitude, longitude)) {
+                hits.add(fence);
+            }
+        }
+        return hits;
+    }
+
+    public static boolean contains(Geofence fence, double latitude, double longitude) {
+        if (isPolygon(fence)) {
+            // Ray casting on latitude/longitude, fine for fences a few kilometres across
+            List<LocationPoint> ring = fence.getPolygon();
+            boolean inside = false;
+            for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+                LocationPoint a = ring.get(i);
+                LocationPoint b = ring.get(j);
+                if ((a.getLatitude() > latitude) != (b.getLatitude() > latitude)
+                        && longitude < (b.getLongitude() - a.getLongitude()) * (latitude - a.getLatitude())
+                        / (b.getLatitude() - a.getLatitude()) + a.getLongitude()) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+        return GeoUtils.distanceMetres(fence.getLatitude(), fence.getLongitude(), latitude, longitude)
+                <= fence.getRadiusMetres();
+    }
+
+    private static boolean isPolygon(Geofence fence) {
+        return fence.getPolygon() != null && fence.getPolygon().size() >= 3;
+    }
+
+    private void forEachCell(Geofence fence, LongConsumer action) {
+        double south, north, west, east;
+        if (isPolygon(fence)) {
+            south = north = fence.getPolygon().get(0).getLatitude();
+            west = east = fence.getPolygon().get(0).getLongitude();
+            for (LocationPoint p : fence.getPolygon()) {
+                south = Math.min(south, p.getLatitude());
+                north = Math.max(north, p.getLatitude());
+                west = Math.min(west, p.getLongitude());
+                east = Math.max(east, p.getLongitude());
+            }
+        } else {
+            double dLat = fence.getRadiusMetres() / METRES_PER_DEGREE;
+            double dLon = fence.getRadiusMetres() / (METRES_PER_DEGREE * Math.cos(Math.toRadians(fence.getLatitude())));
+            south = fence.getLatitude() - dLat;
+            north = fence.getLatitude() + dLat;
+            west = fence.getLongitude() - dLon;
+            east = fence.getLongitude() + dLon;
+        }
+
+        for (long row = cellOf(south); row <= cellOf(north); row++) {
+            for (long col = cellOf(west); col <= cellOf(east); col++) {
+                action.accept(cellKey(row, col));
+            }
+        }
+    }
+
+    private static long cellOf(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.request.GeofenceRequestDto;
+import com.example.backend.entity.Geofence;
+import com.example.backend.repository.GeofenceRepository;
+import com.example.backend.repository.RouteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class GeofenceService {
+
+    private final GeofenceRepository geofenceRepository;
+    private final RouteRepository routeRepository;
+    private final GeofenceIndex geofenceIndex;
+
+    public Geofence createGeofence(GeofenceRequestDto dto) {
+        routeRepository.findById(dto.getRouteId())
+                .orElseThrow(() -> new RuntimeException("Route not found: " + dto.getRouteId()));
+
+        boolean polygon = dto.getPolygon() != null && !dto.getPolygon().isEmpty();
+        if (polygon && dto.getPolygon().size() < 3) {
+            throw new RuntimeException("A polygon geofence needs at least three points");
+        }
+        if (!polygon && (dto.getLatitude() == null || dto.getLongitude() == null || dto.getRadiusMetres() == null)) {
+            throw new RuntimeException("A geofence needs either a polygon or a latitude, longitude and radius");
+        }
+
+        Geofence fence = new Geofence();
+        fence.setRouteId(dto.getRouteId());
+        fence.setType(dto.getType());
+        fence.setName(dto.getName());
+        if (polygon) {
+            fence.setPolygon(dto.getPolygon());
+        } else {
+            fence.setLatitude(dto.getLatitude());
+            fence.setLongitude(dto.getLongitude());
+            fence.setRadiusMetres(dto.getRadiusMetres());
+        }
+        fence.setCreatedAt(LocalDateTime.now());
+
+        Geofence saved = geofenceRepository.save(fence);
+        geofenceIndex.add(saved);
+        return saved;
+    }
+
+    public List<Geofence> getAllGeofences() {
+        return geofenceRepository.findAll();
+    }
+
+    public List<Geofence> getGeofencesByRoute(String routeId) {
+        return geofenceRepository.findByRouteId(routeId);
+    }
+
+    public void deleteGeofence(String id) {
+        Geofence fence = geofenceRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Geofence not found: " + id));
+        geofenceRepository.delete(fence);
+        geofenceIndex.remove(id);
+    }
+}
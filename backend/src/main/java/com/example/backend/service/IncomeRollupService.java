@@ -0,0 +1,320 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.DailyIncomeRollup;
+import com.example.backend.entity.Schedule;
+import com.example.backend.entity.Trip;
+import com.example.backend.util.AggregationUtils;
+import com.example.backend.util.DateUtils;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.backend.util.AggregationUtils.dayString;
+import static com.example.backend.util.AggregationUtils.refId;
+import static com.example.backend.util.AggregationUtils.stage;
+
+/**
+ * Keeps the daily_income rollup in step with trip writes. Every trip
+ * contributes to exactly one (date, bus, route) row; writes apply their
+ * contribution with a single atomic $inc upsert. When a schedule moves to
+ * another bus or route, its trips' totals move to the matching rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncomeRollupService {
+
+    public static final String COLLECTION = "daily_income";
+    private static final String REBUILD_COLLECTION = "daily_income_rebuild";
+
+    private final MongoTemplate mongoTemplate;
+    private final DailyTotalsIndex dailyTotalsIndex;
+
+    // Days written to while a rebuild reads the trips, or null when no rebuild is running
+    private volatile Set<String> touchedDays;
+
+    public void add(Trip trip) {
+        apply(Contribution.of(trip), 1);
+    }
+
+    /**
+     * Add a batch of new trips. Trips that share a rollup row are summed first,
+     * and the rows are written in one unordered bulk of upserts.
+     */
+    public void addAll(List<Trip> trips) {
+        Map<String, Contribution> rows = new LinkedHashMap<>();
+        Map<String, long[]> sums = new HashMap<>();
+        for (Trip trip : trips) {
+            Contribution contribution = Contribution.of(trip);
+            if (contribution.key() == null) {
+                continue;
+            }
+            touch(contribution.date());
+            rows.putIfAbsent(contribution.key(), contribution);
+            long[] sum = sums.computeIfAbsent(contribution.key(), k -> new long[3]);
+            sum[0]++;
+            sum[1] += contribution.passengerCount();
+            sum[2] += contribution.income();
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyIncomeRollup.class);
+        rows.forEach((key, contribution) -> {
+            long[] sum = sums.get(key);
+            bulk.upsert(new Query(Criteria.where("_id").is(key)), incUpdate(contribution, sum[0], sum[1], sum[2]));
+        });
+        bulk.execute();
+    }
+
+    public void remove(Contribution contribution) {
+        apply(contribution, -1);
+    }
+
+    /**
+     * Move a trip's contribution from what it was before an update to what it is now.
+     * When the row is unchanged only the differences are applied.
+     */
+    public void replace(Contribution before, Trip after) {
+        Contribution now = Contribution.of(after);
+        if (before.key() != null && before.key().equals(now.key())) {
+            inc(now, 0, now.passengerCount() - before.passengerCount(), now.income() - before.income());
+            return;
+        }
+        apply(before, -1);
+        apply(now, 1);
+    }
+
+    /**
+     * Move the totals of a schedule's trips from the rows of its previous bus and
+     * route to those of its current ones, one pair of rows per day it ran.
+     * Call from inside a write gate, after the schedule has been saved.
+     */
+    public void moveSchedule(String scheduleId, String fromBusId, String fromRouteId, String toBusId, String toRouteId) {
+        moveSchedules(List.of(new ScheduleMove(scheduleId, fromBusId, fromRouteId, toBusId, toRouteId)));
+    }
+
+    /**
+     * Move the totals of several schedules' trips, with one aggregation over all
+     * their trips and one bulk write. Call from inside a write gate.
+     */
+    public void moveSchedules(List<ScheduleMove> moves) {
+        Map<String, ScheduleMove> byId = new HashMap<>();
+        List<Object> ids = new ArrayList<>();
+        for (ScheduleMove move : moves) {
+            if (move.changed()) {
+                byId.put(move.scheduleId(), move);
+                ids.addAll(AggregationUtils.idValues(move.scheduleId()));
+            }
+        }
+        if (byId.isEmpty()) {
+            return;
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("schedule.$id").in(ids)
+                        .and("date").type(JsonSchemaObject.Type.stringType(), JsonSchemaObject.Type.dateType())),
+                stage("$group", new Document("_id", new Document("schedule", new Document("$toString", refId("$schedule")))
+                        .append("date", dayString("$date")))
+                        .append("tripCount", new Document("$sum", 1))
+                        .append("passengerCount", new Document("$sum", "$passengerCount"))
+                        .append("income", new Document("$sum", "$income"))));
+        List<Document> days = mongoTemplate.aggregate(aggregation, "trip", Document.class).getMappedResults();
+        if (days.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyIncomeRollup.class);
+        for (Document day : days) {
+            Document key = day.get("_id", Document.class);
+            ScheduleMove move = byId.get(key.getString("schedule"));
+            LocalDate date = DateUtils.tryParse(key.getString("date"));
+            if (move == null || date == null) {
+                continue;
+            }
+            touch(date);
+            long trips = longValue(day.get("tripCount"));
+            long passengers = longValue(day.get("passengerCount"));
+            long income = longValue(day.get("income"));
+            Contribution from = new Contribution(date, move.fromBusId(), move.fromRouteId(), 0, 0);
+            Contribution to = new Contribution(date, move.toBusId(), move.toRouteId(), 0, 0);
+            bulk.upsert(new Query(Criteria.where("_id").is(from.key())), incUpdate(from, -trips, -passengers, -income));
+            bulk.upsert(new Query(Criteria.where("_id").is(to.key())), incUpdate(to, trips, passengers, income));
+        }
+        bulk.execute();
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        inc(contribution, sign, (long) sign * contribution.passengerCount(), (long) sign * contribution.income());
+    }
+
+    private void inc(Contribution contribution, int trips, long passengers, long income) {
+        if (contribution.key() == null) {
+            return;
+        }
+        touch(contribution.date());
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(contribution.key())),
+                incUpdate(contribution, trips, passengers, income), DailyIncomeRollup.class);
+    }
+
+    private static Update incUpdate(Contribution contribution, long trips, long passengers, long income) {
+        return new Update()
+                .setOnInsert("date", contribution.date().toString())
+                .setOnInsert("busId", contribution.busId())
+                .setOnInsert("routeId", contribution.routeId())
+                .inc("tripCount", trips)
+                .inc("passengerCount", passengers)
+                .inc("income", income)
+                .set("updatedAt", LocalDateTime.now());
+    }
+
+    public boolean isEmpty() {
+        return mongoTemplate.estimatedCount(DailyIncomeRollup.class) == 0;
+    }
+
+    /**
+     * Recompute the whole rollup from the trips into a separate collection and
+     * swap it in. Trip writes carry on while the trips are read, and the days
+     * they touch are noted; with writes held at the gate those days are then
+     * recomputed once more before the swap, so no concurrent $inc is lost.
+     */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        touchedDays = ConcurrentHashMap.newKeySet();
+        try {
+            mongoTemplate.dropCollection(REBUILD_COLLECTION);
+            IndexOperations indexes = mongoTemplate.indexOps(REBUILD_COLLECTION);
+            new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                    .resolveIndexFor(DailyIncomeRollup.class)
+                    .forEach(indexes::ensureIndex);
+            // $out into an existing collection keeps its indexes
+            aggregateRollup(new Criteria(), Aggregation.out(REBUILD_COLLECTION));
+
+            int recomputed;
+            try (DailyTotalsIndex.WriteGate ignored = dailyTotalsIndex.holdWrites()) {
+                Set<String> days = touchedDays;
+                recomputed = days.size();
+                if (!days.isEmpty()) {
+                    mongoTemplate.remove(new Query(Criteria.where("date").in(days)), REBUILD_COLLECTION);
+                    aggregateRollup(Criteria.where("date").in(storedDates(days)),
+                            Aggregation.merge().intoCollection(REBUILD_COLLECTION).build());
+                }
+                mongoTemplate.getCollection(REBUILD_COLLECTION).renameCollection(
+                        new MongoNamespace(mongoTemplate.getDb().getName(), COLLECTION),
+                        new RenameCollectionOptions().dropTarget(true));
+            }
+            log.info("Rebuilt daily income rollup in {} ms ({} days written meanwhile recomputed)",
+                    System.currentTimeMillis() - started, recomputed);
+        } finally {
+            touchedDays = null;
+        }
+    }
+
+    // Group the matching trips into rollup rows and write them with the given final stage
+    private void aggregateRollup(Criteria trips, AggregationOperation write) {
+        Document busIdString = new Document("$toString", refId("$scheduleDoc.busId"));
+        Document routeIdString = new Document("$toString", refId("$scheduleDoc.routeId"));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(Criteria.where("date").type(JsonSchemaObject.Type.stringType(), JsonSchemaObject.Type.dateType()), trips)),
+                stage("$addFields", new Document("scheduleId", refId("$schedule"))),
+                Aggregation.lookup("schedules", "scheduleId", "_id", "scheduleDoc"),
+                Aggregation.unwind("scheduleDoc", true),
+                stage("$group", new Document("_id", new Document("date", dayString("$date"))
+                        .append("busId", busIdString)
+                        .append("routeId", routeIdString))
+                        .append("tripCount", new Document("$sum", 1))
+                        .append("passengerCount", new Document("$sum", "$passengerCount"))
+                        .append("income", new Document("$sum", "$income"))),
+                stage("$project", new Document("_id", new Document("$concat", List.of(
+                        "$_id.date", ":",
+                        new Document("$ifNull", List.of("$_id.busId", "")), ":",
+                        new Document("$ifNull", List.of("$_id.routeId", "")))))
+                        .append("date", "$_id.date")
+                        .append("busId", "$_id.busId")
+                        .append("routeId", "$_id.routeId")
+                        .append("tripCount", 1)
+                        .append("passengerCount", 1)
+                        .append("income", 1)
+                        .append("updatedAt", new Document("$literal", new Date()))),
+                write
+        ).withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+
+        mongoTemplate.aggregate(aggregation, "trip", Document.class);
+    }
+
+    private void touch(LocalDate date) {
+        Set<String> days = touchedDays;
+        if (days != null && date != null) {
+            days.add(date.toString());
+        }
+    }
+
+    // The days as trips store them: a Date at midnight in the server's zone, or a yyyy-MM-dd string
+    private static List<Object> storedDates(Set<String> days) {
+        List<Object> values = new ArrayList<>();
+        for (String day : days) {
+            values.add(day);
+            values.add(Date.from(LocalDate.parse(day).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        }
+        return values;
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    // A schedule's bus and route before and after it was reassigned
+    public record ScheduleMove(String scheduleId, String fromBusId, String fromRouteId, String toBusId, String toRouteId) {
+
+        boolean changed() {
+            return !Objects.equals(fromBusId, toBusId) || !Objects.equals(fromRouteId, toRouteId);
+        }
+    }
+
+    /**
+     * What one trip adds to the rollup. Captured before a trip is modified or
+     * deleted so the old values can be taken back out.
+     */
+    public record Contribution(LocalDate date, String busId, String routeId, int passengerCount, int income) {
+
+        public static Contribution of(Trip trip) {
+            Schedule schedule = trip.getSchedule();
+            String busId = schedule != null && schedule.getBus() != null ? schedule.getBus().getId() : null;
+            String routeId = schedule != null && schedule.getRoute() != null ? schedule.getRoute().getId() : null;
+            return new Contribution(trip.getDate(), busId, routeId, trip.getPassengerCount(), trip.getIncome());
+        }
+
+        // Row id, or null for trips without a date, which no report counts
+        public String key() {
+            if (date == null) {
+                return null;
+            }
+            return date + ":" + (busId != null ? busId : "") + ":" + (routeId != null ? routeId : "");
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+import static com.example.backend.util.AggregationUtils.stage;
+
+/**
+ * Pages through a collection by position instead of by offset. Each page ends
+ * with a cursor holding the sort key of its last row, and the next page starts
+ * with the rows after that key, found on the index the sort uses. Page 500
+ * reads the same number of rows as page 1. The sort always ends with _id so
+ * every row has a distinct position. Text searches are ordered by text score
+ * and continue after the last row's score. Counting every match is optional,
+ * since on a large collection the count costs more than the page.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeysetPager {
+
+    private static final String SCORE_FIELD = "searchScore";
+    private static final JsonWriterSettings CURSOR_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private final MongoTemplate mongoTemplate;
+    private final BatchReferenceLoader batchReferenceLoader;
+
+    /**
+     * One page of the rows matching the filter, in the given order of stored field names.
+     * Without a cursor the page starts {@code page * size} rows in, so offset requests keep working.
+     */
+    public <T> Slice<T> find(Criteria filter, Sort sort, String cursor, int page, int size, boolean withCount, Class<T> type) {
+        Sort order = withIdLast(sort);
+        Criteria where = filter != null ? filter : new Criteria();
+        Criteria after = cursor != null ? after(order, decode(cursor, order)) : null;
+
+        Query query = new Query(after != null ? new Criteria().andOperator(where, after) : where)
+                .with(order)
+                .limit(size + 1);
+        if (cursor == null && page > 0) {
+            query.skip((long) page * size);
+        }
+        String collection = mongoTemplate.getCollectionName(type);
+        List<Document> rows = mongoTemplate.find(query, Document.class, collection);
+
+        Long total = withCount ? mongoTemplate.count(new Query(where), collection) : null;
+        return slice(rows, order, size, total, type);
+    }
+
+    /**
+     * One page of the rows matching the words, best matches first. Blank text
+     * lists every row in the browse order instead.
+     */
+    public <T> Slice<T> search(String text, Sort browseOrder, String cursor, int page, int size, boolean withCount, Class<T> type) {
+        if (text == null || text.isBlank()) {
+            return find(null, browseOrder, cursor, page, size, withCount, type);
+        }
+        Sort order = Sort.by(Sort.Order.desc(SCORE_FIELD), Sort.Order.asc("_id"));
+        TextCriteria words = TextCriteria.forDefaultLanguage().matching(text.trim());
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(words));
+        stages.add(stage("$addFields", new Document(SCORE_FIELD, new Document("$meta", "textScore"))));
+        if (cursor != null) {
+            stages.add(Aggregation.match(after(order, decode(cursor, order))));
+        }
+        stages.add(stage("$sort", new Document(SCORE_FIELD, -1).append("_id", 1)));
+        if (cursor == null && page > 0) {
+            stages.add(Aggregation.skip((long) page * size));
+        }
+        stages.add(Aggregation.limit(size + 1L));
+
+        String collection = mongoTemplate.getCollectionName(type);
+        List<Document> rows = mongoTemplate.aggregate(Aggregation.newAggregation(stages), collection, Document.class)
+                .getMappedResults();
+
+        Long total = withCount ? mongoTemplate.count(TextQuery.queryText(words), collection) : null;
+        return slice(rows, order, size, total, type);
+    }
+
+    private <T> Slice<T> slice(List<Document> rows, Sort order, int size, Long total, Class<T> type) {
+        boolean more = rows.size() > size;
+        List<Document> content = more ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String next = more ? encode(content.get(content.size() - 1), order) : null;
+        return new Slice<>(batchReferenceLoader.read(content, type), next, total);
+    }
+
+    private static Sort withIdLast(Sort sort) {
+        if (sort.getOrderFor("_id") != null) {
+            return sort;
+        }
+        Sort.Direction direction = sort.isSorted() ? sort.toList().get(sort.toList().size() - 1).getDirection() : Sort.Direction.ASC;
+        return sort.and(Sort.by(direction, "_id"));
+    }
+
+    // Rows after the given key in the given order: equal on the leading fields and past it on the next one
+    private static Criteria after(Sort order, List<Object> key) {
+        List<Sort.Order> orders = order.toList();
+        List<Criteria> branches = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order current = orders.get(i);
+            Object value = key.get(i);
+            Criteria beyond;
+            if (value == null) {
+                // Missing values sort first, so only an ascending order has rows beyond them
+                if (current.isDescending()) {
+                    continue;
+                }
+                beyond = Criteria.where(current.getProperty()).ne(null);
+            } else if (current.isAscending()) {
+                beyond = Criteria.where(current.getProperty()).gt(value);
+            } else {
+                // Descending, missing values come last, so they are beyond any value
+                beyond = new Criteria().orOperator(
+                        Criteria.where(current.getProperty()).lt(value),
+                        Criteria.where(current.getProperty()).is(null));
+            }
+            List<Criteria> parts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                parts.add(Criteria.where(orders.get(j).getProperty()).is(key.get(j)));
+            }
+            parts.add(beyond);
+            branches.add(parts.size() == 1 ? beyond : new Criteria().andOperator(parts));
+        }
+        if (branches.isEmpty()) {
+            // Nothing sorts after the key
+            return Criteria.where("_id").exists(false);
+        }
+        return new Criteria().orOperator(branches);
+    }
+
+    private static String encode(Document row, Sort order) {
+        List<Object> key = new ArrayList<>();
+        for (Sort.Order each : order) {
+            key.add(valueAt(row, each.getProperty()));
+        }
+        Document cursor = new Document("s", orderSpec(order)).append("k", key);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.toJson(CURSOR_JSON).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The cursor's sort key, checked against the order it is used with
+    private static List<Object> decode(String cursor, Sort order) {
+        try {
+            Document parsed = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            List<?> key = parsed.getList("k", Object.class);
+            if (!Objects.equals(parsed.getString("s"), orderSpec(order)) || key == null || key.size() != order.toList().size()) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ArrayList<>(key);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String orderSpec(Sort order) {
+        StringBuilder spec = new StringBuilder();
+        for (Sort.Order each : order) {
+            spec.append(each.getProperty()).append(each.isAscending() ? ":1," : ":-1,");
+        }
+        return spec.toString();
+    }
+
+    private static Object valueAt(Document row, String path) {
+        Object value = row;
+        for (String part : path.split("\\.")) {
+            if (!(value instanceof Document document)) {
+                return null;
+            }
+            value = document.get(part);
+        }
+        return value;
+    }
+
+    /**
+     * A page of rows, the cursor for the page after it (null on the last page),
+     * and the number of matching rows when it was asked for.
+     */
+    public record Slice<T>(List<T> content, String nextCursor, Long total) {
+    }
+}
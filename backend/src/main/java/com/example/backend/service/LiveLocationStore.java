@@ -0,0 +1,203 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.DriverLocation;
+import com.example.backend.repository.DriverLocationRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory store holding the latest known position of every driver.
+ * Location pings only touch this map; dirty entries are written back to
+ * the driver_locations collection in unordered bulk upserts by
+ * {@link com.example.backend.Scheduling.DriverLocationFlushScheduler}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LiveLocationStore {
+
+    private final DriverLocationRepository locationRepository;
+    private final MongoTemplate mongoTemplate;
+
+    // Entries are never mutated after being put, so readers can hand them out directly
+    private final Map<String, DriverLocation> positions = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    // Load the last persisted positions so the store is complete after a restart
+    @PostConstruct
+    public void warmUp() {
+        try {
+            for (DriverLocation location : locationRepository.findAll()) {
+                positions.put(location.getDriverUsername(), location);
+            }
+            log.info("Loaded {} driver locations into the live store", positions.size());
+        } catch (Exception e) {
+            log.error("Failed to warm up live location store: {}", e.getMessage());
+        }
+    }
+
+    public DriverLocation put(DriverLocation location) {
+        positions.put(location.getDriverUsername(), location);
+        dirty.add(location.getDriverUsername());
+        return location;
+    }
+
+    /**
+     * Store the position unless the driver already has one fixed at the same time or later,
+     * so points replayed from a device's offline buffer cannot move a driver back.
+     * Returns the entry held for the driver afterwards.
+     */
+    public DriverLocation putIfNewer(DriverLocation location) {
+        DriverLocation stored = positions.merge(location.getDriverUsername(), location, (current, candidate) ->
+                current.getTimestamp() != null && !candidate.getTimestamp().isAfter(current.getTimestamp()) ? current : candidate);
+        if (stored == location) {
+            dirty.add(location.getDriverUsername());
+        }
+        return stored;
+    }
+
+    public Optional<DriverLocation> get(String driverUsername) {
+        return Optional.ofNullable(positions.get(driverUsername));
+    }
+
+    public Collection<DriverLocation> getAll() {
+        return positions.values();
+    }
+
+    public int dirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Write all dirty positions to Mongo in a single unordered bulk upsert.
+     * A driver updated while the flush is running is simply marked dirty again
+     * and picked up by the next flush.
+     */
+    public int flush() {
+        if (dirty.isEmpty()) {
+            return 0;
+        }
+
+        List<DriverLocation> batch = new ArrayList<>();
+        Iterator<String> it = dirty.iterator();
+        while (it.hasNext()) {
+            String username = it.next();
+            it.remove();
+            DriverLocation location = positions.get(username);
+            if (location != null) {
+                batch.add(location);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DriverLocation.class);
+        for (DriverLocation location : batch) {
+            Query query = new Query(Criteria.where("driverUsername").is(location.getDriverUsername()));
+            Update update = new Update()
+                    .set("latitude", location.getLatitude())
+                    .set("longitude", location.getLongitude())
+                    .set("position", location.getPosition())
+                    .set("accuracy", location.getAccuracy())
+                    .set("speed", location.getSpeed())
+                    .set("heading", location.getHeading())
+                    .set("status", location.getStatus())
+                    .set("busNumber", location.getBusNumber())
+                    .set("timestamp", location.getTimestamp())
+                    .set("updatedAt", location.getUpdatedAt())
+                    .setOnInsert("createdAt", location.getCreatedAt());
+            bulk.upsert(query, update);
+        }
+
+        try {
+            BulkWriteResult result = bulk.execute();
+            log.debug("Flushed {} driver locations (matched {}, upserted {})",
+                    batch.size(), result.getMatchedCount(), result.getUpserts().size());
+        } catch (Exception e) {
+            // Put the batch back so nothing is lost; newer pings win over the failed snapshot
+            for (DriverLocation location : batch) {
+                dirty.add(location.getDriverUsername());
+            }
+            log.error("Failed to flush {} driver locations: {}", batch.size(), e.getMessage());
+            return 0;
+        }
+        return batch.size();
+    }
+
+    /**
+     * Flip the given drivers to offline if they have not been updated since the cutoff,
+     * and apply the change to Mongo in a single multi-document update.
+     * Returns the entries that were actually flipped.
+     */
+    public List<DriverLocation> markOffline(Collection<String> driverUsernames, LocalDateTime cutoff) {
+        List<DriverLocation> flipped = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (String username : driverUsernames) {
+            positions.computeIfPresent(username, (k, current) -> {
+                // A ping that arrived after the sweeper decided keeps the driver active
+                if (current.getUpdatedAt() != null && current.getUpdatedAt().isAfter(cutoff)) {
+                    return current;
+                }
+                DriverLocation offline = copyOf(current);
+                offline.setStatus("offline");
+                offline.setUpdatedAt(now);
+                flipped.add(offline);
+                return offline;
+            });
+        }
+        if (flipped.isEmpty()) {
+            return flipped;
+        }
+
+        List<String> usernames = flipped.stream().map(DriverLocation::getDriverUsername).toList();
+        try {
+            mongoTemplate.updateMulti(
+                    new Query(Criteria.where("driverUsername").in(usernames)),
+                    new Update().set("status", "offline").set("updatedAt", now),
+                    DriverLocation.class);
+        } catch (Exception e) {
+            // Fall back to the regular write-behind for these drivers
+            dirty.addAll(usernames);
+            log.error("Failed to mark {} drivers offline: {}", usernames.size(), e.getMessage());
+        }
+        return flipped;
+    }
+
+    // Copy used by writers so stored entries stay immutable
+    public static DriverLocation copyOf(DriverLocation source) {
+        DriverLocation copy = new DriverLocation();
+        copy.setId(source.getId());
+        copy.setDriverUsername(source.getDriverUsername());
+        copy.setLatitude(source.getLatitude());
+        copy.setLongitude(source.getLongitude());
+        copy.setPosition(source.getPosition());
+        copy.setAccuracy(source.getAccuracy());
+        copy.setSpeed(source.getSpeed());
+        copy.setHeading(source.getHeading());
+        copy.setStatus(source.getStatus());
+        copy.setBusNumber(source.getBusNumber());
+        copy.setTimestamp(source.getTimestamp());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.response.DriverLocationResponse;
+import com.example.backend.dto.response.ScheduleEtaResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes live driver position changes to admins over STOMP.
+ * Updates are coalesced per driver, so a driver pinging several times within
+ * one broadcast window produces a single delta carrying the latest position.
+ * Schedule ETAs are coalesced the same way, per schedule.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LocationBroadcaster {
+
+    public static final String DRIVER_LOCATIONS_TOPIC = "/topic/admin/driver-locations";
+    public static final String SCHEDULE_ETAS_TOPIC = "/topic/admin/schedule-etas";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<String, DriverLocationResponse> pending = new ConcurrentHashMap<>();
+    private final Map<String, ScheduleEtaResponse> pendingEtas = new ConcurrentHashMap<>();
+
+    public void publish(DriverLocationResponse location) {
+        pending.put(location.getDriverUsername(), location);
+    }
+
+    public void publishEta(ScheduleEtaResponse eta) {
+        pendingEtas.put(eta.getScheduleNumber(), eta);
+    }
+
+    /**
+     * Send everything collected since the last call as one batch of deltas per topic.
+     */
+    public int flush() {
+        return send(DRIVER_LOCATIONS_TOPIC, pending) + send(SCHEDULE_ETAS_TOPIC, pendingEtas);
+    }
+
+    private <T> int send(String topic, Map<String, T> source) {
+        if (source.isEmpty()) {
+            return 0;
+        }
+
+        List<T> batch = new ArrayList<>();
+        for (String key : source.keySet()) {
+            // remove() hands back the newest value, so a ping racing with the flush is never dropped
+            T value = source.remove(key);
+            if (value != null) {
+                batch.add(value);
+            }
+        }
+
+        try {
+            messagingTemplate.convertAndSend(topic, batch);
+        } catch (Exception e) {
+            log.error("Error broadcasting {} updates to {}: {}", batch.size(), topic, e.getMessage());
+        }
+        return batch.size();
+    }
+}
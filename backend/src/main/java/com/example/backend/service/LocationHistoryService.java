@@ -0,0 +1,224 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.LocationHistoryBucket;
+import com.example.backend.entity.LocationPoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * Records accepted location points into hourly per-driver buckets and
+ * replays trajectories from them. Points are queued in memory on the ingest
+ * path and appended to their buckets with one bulk write per flush.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LocationHistoryService {
+
+    private static final DateTimeFormatter BUCKET_KEY = DateTimeFormatter.ofPattern("yyyyMMddHH");
+    // Flushes a point may fail in before it is dropped
+    private static final int MAX_ATTEMPTS = 5;
+    // Write errors a retry cannot fix: bad value, document validation, document too large
+    private static final Set<Integer> PERMANENT_ERRORS = Set.of(2, 121, 10334, 17419);
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentLinkedQueue<PendingPoint> queue = new ConcurrentLinkedQueue<>();
+
+    // Time of the newest point accepted per driver, in the server's zone, used to drop replayed points.
+    // After a restart it starts from the newest point written to the driver's history.
+    private final Map<String, LocalDateTime> lastAccepted = new ConcurrentHashMap<>();
+
+    /**
+     * Returns true and advances the driver's high-water mark if the timestamp is
+     * newer than every point accepted so far; false for replays and duplicates.
+     */
+    public boolean markIfNewer(String driverUsername, LocalDateTime timestamp) {
+        if (!lastAccepted.containsKey(driverUsername)) {
+            lastAccepted.putIfAbsent(driverUsername, lastRecorded(driverUsername));
+        }
+        boolean[] newer = {false};
+        lastAccepted.computeIfPresent(driverUsername, (k, current) -> {
+            if (timestamp.isAfter(current)) {
+                newer[0] = true;
+                return timestamp;
+            }
+            return current;
+        });
+        return newer[0];
+    }
+
+    // Newest point in the driver's stored history, or the start of time when there is none.
+    // A time ahead of the server clock (e.g. written before device times were converted) is capped at now.
+    private LocalDateTime lastRecorded(String driverUsername) {
+        Query query = new Query(Criteria.where("driverUsername").is(driverUsername))
+                .with(Sort.by(Sort.Direction.DESC, "bucketStart"))
+                .limit(1);
+        query.fields().include("lastTimestamp");
+        LocationHistoryBucket latest = mongoTemplate.findOne(query, LocationHistoryBucket.class);
+        if (latest == null || latest.getLastTimestamp() == null) {
+            return LocalDateTime.MIN;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return latest.getLastTimestamp().isAfter(now) ? now : latest.getLastTimestamp();
+    }
+
+    public void record(String driverUsername, String busNumber, LocationPoint point) {
+        queue.add(new PendingPoint(driverUsername, busNumber, point, 0));
+    }
+
+    /**
+     * Append all queued points to their buckets. Points for the same bucket are
+     * grouped so each bucket costs a single upsert per flush. Points of buckets
+     * the write failed for are queued again for the next flush, unless the error is
+     * one a retry cannot fix or they have already failed MAX_ATTEMPTS times.
+     */
+    public int flush() {
+        Map<String, List<PendingPoint>> byBucket = new LinkedHashMap<>();
+        PendingPoint pending;
+        while ((pending = queue.poll()) != null) {
+            byBucket.computeIfAbsent(bucketId(pending.driverUsername, pending.point.getTimestamp()), k -> new ArrayList<>())
+                    .add(pending);
+        }
+        if (byBucket.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LocationHistoryBucket.class);
+        List<List<PendingPoint>> groups = new ArrayList<>(byBucket.size());
+        int total = 0;
+        for (Map.Entry<String, List<PendingPoint>> entry : byBucket.entrySet()) {
+            List<PendingPoint> group = entry.getValue();
+            PendingPoint first = group.get(0);
+            List<LocationPoint> points = new ArrayList<>(group.size());
+            LocalDateTime min = first.point.getTimestamp();
+            LocalDateTime max = min;
+            for (PendingPoint p : group) {
+                points.add(p.point);
+                if (p.point.getTimestamp().isBefore(min)) min = p.point.getTimestamp();
+                if (p.point.getTimestamp().isAfter(max)) max = p.point.getTimestamp();
+            }
+            PendingPoint last = group.get(group.size() - 1);
+
+            Update update = new Update()
+                    .setOnInsert("driverUsername", first.driverUsername)
+                    .setOnInsert("bucketStart", first.point.getTimestamp().truncatedTo(ChronoUnit.HOURS))
+                    .set("busNumber", last.busNumber)
+                    .min("firstTimestamp", min)
+                    .max("lastTimestamp", max)
+                    .inc("count", points.size())
+                    .push("points").each(points.toArray());
+            bulk.upsert(new Query(Criteria.where("_id").is(entry.getKey())), update);
+            groups.add(group);
+            total += points.size();
+        }
+
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // The other upserts of an unordered bulk were applied; only the failed buckets go back
+            int requeued = 0;
+            int dropped = 0;
+            for (BulkWriteError error : e.getErrors()) {
+                List<PendingPoint> group = groups.get(error.getIndex());
+                if (PERMANENT_ERRORS.contains(error.getCode())) {
+                    log.error("Dropping {} location history points of bucket {}: {}",
+                            group.size(), bucketId(group.get(0).driverUsername, group.get(0).point.getTimestamp()), error.getMessage());
+                    dropped += group.size();
+                } else {
+                    int kept = requeue(group);
+                    requeued += kept;
+                    dropped += group.size() - kept;
+                }
+            }
+            log.error("Failed to write {} of {} location history points, {} queued for the next flush: {}",
+                    requeued + dropped, total, requeued, e.getMessage());
+            return total - requeued - dropped;
+        } catch (Exception e) {
+            int requeued = groups.stream().mapToInt(this::requeue).sum();
+            log.error("Failed to write {} location history points, {} queued for the next flush: {}",
+                    total, requeued, e.getMessage());
+            return 0;
+        }
+        return total;
+    }
+
+    /**
+     * Stream a driver's trajectory between two instants as newline-delimited JSON.
+     * Buckets are read through a cursor one at a time, so memory use does not
+     * depend on the length of the window.
+     */
+    public void streamTrajectory(String driverUsername, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        Query query = new Query(Criteria.where("driverUsername").is(driverUsername)
+                .and("bucketStart").gte(from.truncatedTo(ChronoUnit.HOURS)).lte(to))
+                .with(Sort.by(Sort.Direction.ASC, "bucketStart"));
+
+        try (Stream<LocationHistoryBucket> buckets = mongoTemplate.stream(query, LocationHistoryBucket.class)) {
+            for (LocationHistoryBucket bucket : (Iterable<LocationHistoryBucket>) buckets::iterator) {
+                if (bucket.getPoints() == null) {
+                    continue;
+                }
+                // Batched ingest can append slightly out of order within a bucket
+                List<LocationPoint> points = new ArrayList<>(bucket.getPoints());
+                points.sort(Comparator.comparing(LocationPoint::getTimestamp));
+                for (LocationPoint point : points) {
+                    if (point.getTimestamp().isBefore(from) || point.getTimestamp().isAfter(to)) {
+                        continue;
+                    }
+                    out.write(objectMapper.writeValueAsBytes(point));
+                    out.write('\n');
+                }
+                out.flush();
+            }
+        }
+    }
+
+    // Queue the points again with one more attempt counted, dropping those out of attempts; returns the number queued
+    private int requeue(List<PendingPoint> group) {
+        int requeued = 0;
+        for (PendingPoint p : group) {
+            if (p.attempts + 1 < MAX_ATTEMPTS) {
+                queue.add(new PendingPoint(p.driverUsername, p.busNumber, p.point, p.attempts + 1));
+                requeued++;
+            }
+        }
+        if (requeued < group.size()) {
+            log.error("Dropping {} location history points of {} after {} failed writes",
+                    group.size() - requeued, group.get(0).driverUsername, MAX_ATTEMPTS);
+        }
+        return requeued;
+    }
+
+    private String bucketId(String driverUsername, LocalDateTime timestamp) {
+        return driverUsername + ":" + timestamp.format(BUCKET_KEY);
+    }
+
+    private record PendingPoint(String driverUsername, String busNumber, LocationPoint point, int attempts) {
+    }
+}
@@ -1,21 +1,26 @@
 package com.example.backend.service;
 
 import com.example.backend.dto.request.LocationUpdateRequest;
-import com.example.backend.dto.response.BusResponseDto;
 import com.example.backend.dto.response.DriverLocationResponse;
+import com.example.backend.dto.response.LocationBatchResponse;
+import com.example.backend.dto.response.ScheduleEtaResponse;
 import com.example.backend.entity.DriverLocation;
-import com.example.backend.repository.BusRepository;
+import com.example.backend.entity.LocationPoint;
 import com.example.backend.repository.DriverLocationRepository;
-import com.example.backend.repository.UserRepo;
-import com.example.backend.service.impl.BusServiceImpl;
+import com.example.backend.util.DateUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,42 +28,47 @@ import java.util.stream.Collectors;
 @Slf4j
 public class LocationService {
 
+    private static final List<String> ACTIVE_STATUSES = List.of("online", "active");
+    // Longest stretch of a viewport's top or bottom edge between two polygon vertices
+    private static final double VIEWPORT_EDGE_STEP_DEGREES = 0.5;
+
+    private final LiveLocationStore liveLocationStore;
     private final DriverLocationRepository locationRepository;
-    private final BusRepository busRepository;
-    private final UserRepo userRepo;
+    private final DriverAssignmentCache driverAssignmentCache;
+    private final LocationBroadcaster locationBroadcaster;
+    private final LocationHistoryService locationHistoryService;
+    private final StaleDriverTracker staleDriverTracker;
+    private final SamplingIntervalPolicy samplingIntervalPolicy;
+    private final ActiveScheduleCache activeScheduleCache;
+    private final TrackSimplifier trackSimplifier;
+    private final ScheduleEtaEngine scheduleEtaEngine;
+    private final GeofenceEngine geofenceEngine;
 
-    @Transactional
     public DriverLocationResponse updateDriverLocation(String driverUsername, LocationUpdateRequest request) {
         try {
-            Optional<DriverLocation> existingLocation = locationRepository.findByDriverUsername(driverUsername);
-            BusServiceImpl busService = new BusServiceImpl(busRepository, userRepo);// Temporary instance to access static method
-            String busNumber = busService.getBusNumberByUsername(driverUsername);
-            DriverLocation location;
-            if (existingLocation.isPresent()) {
-                location = existingLocation.get();
-                location.setLatitude(request.getLatitude());
-                location.setLongitude(request.getLongitude());
-                location.setAccuracy(request.getAccuracy());
-                location.setStatus(request.getStatus());
-                location.setBusNumber(busNumber);
-                location.setTimestamp(LocalDateTime.now());
-            } else {
-                location = new DriverLocation(
-                        driverUsername,
-                        request.getLatitude(),
-                        request.getLongitude(),
-                        request.getAccuracy(),
-                        request.getStatus(),
-                        busNumber != null ? busNumber : "Not Assigned",
-                        LocalDateTime.now()
-                );
-            }
+            Optional<DriverAssignmentCache.Assignment> assignment = driverAssignmentCache.get(driverUsername);
+            String busNumber = assignment.map(DriverAssignmentCache.Assignment::busNumber).orElse(null);
+            String busId = assignment.map(DriverAssignmentCache.Assignment::busId).orElse(null);
 
-            DriverLocation savedLocation = locationRepository.save(location);
-            log.info("Updated location for driver: {} at coordinates ({}, {})",
+            // Device time, as in batches; a ping without one is stamped on arrival
+            LocalDateTime pointTime = request.getTimestamp() != null ? DateUtils.fromUtc(request.getTimestamp()) : LocalDateTime.now();
+            // Persisted asynchronously by the flush scheduler
+            Optional<DriverLocation> applied = applyLivePosition(driverUsername, busNumber, request, pointTime);
+            DriverLocation savedLocation = applied.orElseGet(() -> liveLocationStore.get(driverUsername).orElseThrow());
+            if (locationHistoryService.markIfNewer(driverUsername, pointTime)) {
+                recordHistory(driverUsername, savedLocation.getBusNumber(), toPoint(request, pointTime));
+                trackSchedule(busId, request, pointTime);
+            }
+            log.debug("Updated location for driver: {} at coordinates ({}, {})",
                     driverUsername, request.getLatitude(), request.getLongitude());
 
-            return convertToResponse(savedLocation);
+            DriverLocationResponse response = convertToResponse(savedLocation);
+            if (applied.isPresent()) {
+                locationBroadcaster.publish(response);
+            }
+            samplingIntervalPolicy.recordPing();
+            response.setNextReportIntervalSeconds(nextReportInterval(driverUsername, savedLocation));
+            return response;
 
         } catch (Exception e) {
             log.error("Error updating location for driver {}: {}", driverUsername, e.getMessage());
@@ -66,9 +76,173 @@ public class LocationService {
         }
     }
 
+    /**
+     * Ingest a buffered batch of timestamped points from one driver.
+     * Points are applied in timestamp order; anything not newer than the last
+     * point already accepted for the driver is treated as a replay and dropped.
+     * All accepted points go to the history store together and only the newest
+     * one updates the live position, stamped with its own time and only if it is
+     * newer than the live position.
+     */
+    public LocationBatchResponse updateDriverLocations(String driverUsername, List<LocationUpdateRequest> requests) {
+        try {
+            List<LocationUpdateRequest> ordered = requests.stream()
+                    .filter(r -> r.getTimestamp() != null)
+                    .sorted(Comparator.comparing(LocationUpdateRequest::getTimestamp))
+                    .collect(Collectors.toList());
+            int missingTimestamp = requests.size() - ordered.size();
+
+            Optional<DriverAssignmentCache.Assignment> assignment = driverAssignmentCache.get(driverUsername);
+            String busNumber = assignment.map(DriverAssignmentCache.Assignment::busNumber).orElse(null);
+            String busId = assignment.map(DriverAssignmentCache.Assignment::busId).orElse(null);
+            String resolvedBusNumber = busNumber != null ? busNumber : "Not Assigned";
+
+            LocationUpdateRequest latest = null;
+            LocalDateTime latestTime = null;
+            int accepted = 0;
+            for (LocationUpdateRequest request : ordered) {
+                LocalDateTime pointTime = DateUtils.fromUtc(request.getTimestamp());
+                if (!locationHistoryService.markIfNewer(driverUsername, pointTime)) {
+                    continue;
+                }
+                recordHistory(driverUsername, resolvedBusNumber, toPoint(request, pointTime));
+                trackSchedule(busId, request, pointTime);
+                latest = request;
+                latestTime = pointTime;
+                accepted++;
+            }
+
+            Optional<DriverLocation> applied = latest != null
+                    ? applyLivePosition(driverUsername, busNumber, latest, latestTime)
+                    : Optional.empty();
+            applied.ifPresent(location -> locationBroadcaster.publish(convertToResponse(location)));
+            DriverLocationResponse response = liveLocationStore.get(driverUsername).map(this::convertToResponse).orElse(null);
+            samplingIntervalPolicy.recordPing();
+            if (response != null) {
+                response.setNextReportIntervalSeconds(liveLocationStore.get(driverUsername)
+                        .map(location -> nextReportInterval(driverUsername, location))
+                        .orElse(null));
+            }
+
+            log.info("Batch location update from driver {}: {} received, {} accepted, {} duplicates, {} without timestamp",
+                    driverUsername, requests.size(), accepted, ordered.size() - accepted, missingTimestamp);
+
+            return new LocationBatchResponse(
+                    requests.size(),
+                    accepted,
+                    ordered.size() - accepted,
+                    missingTimestamp,
+                    response
+            );
+
+        } catch (Exception e) {
+            log.error("Error updating batch locations for driver {}: {}", driverUsername, e.getMessage());
+            throw new RuntimeException("Failed to update driver locations: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Put the request's position in the live store, fixed at the point's own time (capped at now,
+     * for devices whose clock runs ahead). Empty when the driver already has a newer position.
+     */
+    private Optional<DriverLocation> applyLivePosition(String driverUsername, String busNumber,
+                                                       LocationUpdateRequest request, LocalDateTime pointTime) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime fixedAt = pointTime.isAfter(now) ? now : pointTime;
+        Optional<DriverLocation> existingLocation = liveLocationStore.get(driverUsername);
+        DriverLocation location;
+        if (existingLocation.isPresent()) {
+            location = LiveLocationStore.copyOf(existingLocation.get());
+            location.setLatitude(request.getLatitude());
+            location.setLongitude(request.getLongitude());
+            location.setPosition(new GeoJsonPoint(request.getLongitude(), request.getLatitude()));
+            location.setAccuracy(request.getAccuracy());
+            location.setStatus(request.getStatus());
+            location.setBusNumber(busNumber != null ? busNumber : "Not Assigned");
+            location.setTimestamp(fixedAt);
+            samplingIntervalPolicy.applyMotion(existingLocation.get(), location);
+        } else {
+            location = new DriverLocation(
+                    driverUsername,
+                    request.getLatitude(),
+                    request.getLongitude(),
+                    request.getAccuracy(),
+                    request.getStatus(),
+                    busNumber != null ? busNumber : "Not Assigned",
+                    fixedAt
+            );
+            location.setCreatedAt(now);
+        }
+        // Last seen at the fix itself, so a replayed old point does not keep a silent driver active
+        location.setUpdatedAt(fixedAt);
+        DriverLocation saved = liveLocationStore.putIfNewer(location);
+        if (saved != location) {
+            return Optional.empty();
+        }
+        if (isActive(saved)) {
+            staleDriverTracker.touch(driverUsername);
+        }
+        return Optional.of(saved);
+    }
+
+    private int nextReportInterval(String driverUsername, DriverLocation location) {
+        boolean onOngoingSchedule = driverAssignmentCache.get(driverUsername)
+                .map(assignment -> activeScheduleCache.getOngoing(assignment.busId()).isPresent())
+                .orElse(false);
+        return samplingIntervalPolicy.nextInterval(location, onOngoingSchedule);
+    }
+
+    // Apply geofence transitions for the bus's schedules, then advance the arrival estimate and push it to admins
+    private void trackSchedule(String busId, LocationUpdateRequest request, LocalDateTime timestamp) {
+        if (busId == null || request.getLatitude() == null || request.getLongitude() == null) {
+            return;
+        }
+        geofenceEngine.evaluate(busId, request.getLatitude(), request.getLongitude(), timestamp);
+        scheduleEtaEngine.update(busId, request.getLatitude(), request.getLongitude(), timestamp)
+                .ifPresent(locationBroadcaster::publishEta);
+    }
+
+    public List<ScheduleEtaResponse> getScheduleEtas() {
+        return scheduleEtaEngine.getAll();
+    }
+
+    public Optional<ScheduleEtaResponse> getScheduleEta(String scheduleNumber) {
+        return scheduleEtaEngine.get(scheduleNumber);
+    }
+
+    // History keeps only the points the simplifier marks as final
+    private void recordHistory(String driverUsername, String busNumber, LocationPoint point) {
+        for (LocationPoint kept : trackSimplifier.offer(driverUsername, point)) {
+            locationHistoryService.record(driverUsername, busNumber, kept);
+        }
+    }
+
+    // Persist the tail of a driver's simplified track so the history ends at their last fix
+    private void endTrack(String driverUsername, String busNumber) {
+        trackSimplifier.finish(driverUsername)
+                .ifPresent(point -> locationHistoryService.record(driverUsername, busNumber, point));
+    }
+
+    /**
+     * End every open simplified track, used on shutdown before the final history flush.
+     */
+    public void endAllTracks() {
+        for (String driverUsername : trackSimplifier.openTracks()) {
+            endTrack(driverUsername, liveLocationStore.get(driverUsername).map(DriverLocation::getBusNumber).orElse(null));
+        }
+    }
+
+    private LocationPoint toPoint(LocationUpdateRequest request, LocalDateTime timestamp) {
+        return new LocationPoint(request.getLatitude(), request.getLongitude(), request.getAccuracy(), timestamp);
+    }
+
     public List<DriverLocationResponse> getAllActiveDriverLocations() {
         try {
-            List<DriverLocation> activeDrivers = locationRepository.findActiveDriversSortedByUpdate();
+            List<DriverLocation> activeDrivers = liveLocationStore.getAll().stream()
+                    .filter(this::isActive)
+                    .sorted(Comparator.comparing(DriverLocation::getUpdatedAt,
+                            Comparator.nullsLast(Comparator.reverseOrder())))
+                    .collect(Collectors.toList());
             log.info("Retrieved {} active driver locations", activeDrivers.size());
             return activeDrivers.stream()
                     .map(this::convertToResponse)
@@ -82,7 +256,9 @@ public class LocationService {
     public List<DriverLocationResponse> getRecentDriverLocations(int minutesAgo) {
         try {
             LocalDateTime since = LocalDateTime.now().minusMinutes(minutesAgo);
-            List<DriverLocation> recentLocations = locationRepository.findRecentLocations(since);
+            List<DriverLocation> recentLocations = liveLocationStore.getAll().stream()
+                    .filter(location -> location.getUpdatedAt() != null && !location.getUpdatedAt().isBefore(since))
+                    .collect(Collectors.toList());
             log.info("Retrieved {} recent driver locations from last {} minutes",
                     recentLocations.size(), minutesAgo);
             return recentLocations.stream()
@@ -96,7 +272,7 @@ public class LocationService {
 
     public Optional<DriverLocationResponse> getDriverLocation(String driverUsername) {
         try {
-            Optional<DriverLocation> location = locationRepository.findByDriverUsername(driverUsername);
+            Optional<DriverLocation> location = liveLocationStore.get(driverUsername);
             if (location.isPresent()) {
                 log.info("Retrieved location for driver: {}", driverUsername);
                 return Optional.of(convertToResponse(location.get()));
@@ -110,15 +286,16 @@ public class LocationService {
         }
     }
 
-    @Transactional
     public void setDriverOffline(String driverUsername) {
         try {
-            Optional<DriverLocation> locationOpt = locationRepository.findByDriverUsername(driverUsername);
+            Optional<DriverLocation> locationOpt = liveLocationStore.get(driverUsername);
             if (locationOpt.isPresent()) {
-                DriverLocation location = locationOpt.get();
+                DriverLocation location = LiveLocationStore.copyOf(locationOpt.get());
                 location.setStatus("offline");
-                location.setTimestamp(LocalDateTime.now());
-                locationRepository.save(location);
+                location.setUpdatedAt(LocalDateTime.now());
+                liveLocationStore.put(location);
+                endTrack(driverUsername, location.getBusNumber());
+                locationBroadcaster.publish(convertToResponse(location));
                 log.info("Set driver {} to offline status", driverUsername);
             } else {
                 log.warn("Attempted to set offline status for non-existent driver: {}", driverUsername);
@@ -131,13 +308,106 @@ public class LocationService {
 
     public long getActiveDriverCount() {
         try {
-            return locationRepository.findActiveDrivers().size();
+            return liveLocationStore.getAll().stream()
+                    .filter(this::isActive)
+                    .count();
         } catch (Exception e) {
             log.error("Error counting active drivers: {}", e.getMessage());
             return 0;
         }
     }
 
+    /**
+     * Set every driver that has been silent for longer than the configured threshold
+     * to offline and publish the change. Only drivers whose deadline has passed are examined.
+     */
+    public int expireStaleDrivers() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> expired = staleDriverTracker.pollExpired(now);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        List<DriverLocation> flipped = liveLocationStore.markOffline(expired, staleDriverTracker.cutoff(now));
+        if (flipped.size() < expired.size()) {
+            Set<String> offline = flipped.stream().map(DriverLocation::getDriverUsername).collect(Collectors.toSet());
+            staleDriverTracker.retrack(expired.stream().filter(username -> !offline.contains(username)).toList());
+        }
+        for (DriverLocation location : flipped) {
+            endTrack(location.getDriverUsername(), location.getBusNumber());
+            locationBroadcaster.publish(convertToResponse(location));
+        }
+        log.info("Marked {} silent drivers offline", flipped.size());
+        return flipped.size();
+    }
+
+    /**
+     * Active drivers within radiusMetres of a point, nearest first.
+     * Served from the 2dsphere index, so results lag the live store by at most one flush.
+     */
+    public List<DriverLocationResponse> getActiveDriversNear(double latitude, double longitude, double radiusMetres) {
+        try {
+            List<DriverLocation> nearby = locationRepository.findActiveDriversNear(longitude, latitude, radiusMetres);
+            log.info("Found {} active drivers within {} m of ({}, {})", nearby.size(), radiusMetres, latitude, longitude);
+            return nearby.stream()
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Error fetching drivers near ({}, {}): {}", latitude, longitude, e.getMessage());
+            throw new RuntimeException("Failed to fetch nearby drivers: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Active drivers inside the given map viewport, served from the 2dsphere index.
+     * GeoJSON polygon edges are great circles, which bow away from the parallels a map
+     * draws as the top and bottom of the viewport; the polygon follows those edges in
+     * half-degree steps, which keeps it within about 30 m of the rectangle on screen.
+     */
+    public List<DriverLocationResponse> getActiveDriversInViewport(double south, double west, double north, double east) {
+        try {
+            List<DriverLocation> visible = locationRepository.findByPositionWithinAndStatusIn(
+                    viewportPolygon(south, west, north, east), ACTIVE_STATUSES);
+            log.info("Found {} active drivers inside viewport [{}, {}, {}, {}]", visible.size(), south, west, north, east);
+            return visible.stream()
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Error fetching drivers inside viewport: {}", e.getMessage());
+            throw new RuntimeException("Failed to fetch drivers inside viewport: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Give driver locations saved before they had a GeoJSON position one, so near and
+     * viewport queries include drivers who have not pinged since. Returns the rows updated.
+     */
+    public long backfillPositions() {
+        long updated = locationRepository.backfillPositions();
+        if (updated > 0) {
+            log.info("Backfilled the position of {} driver locations", updated);
+        }
+        return updated;
+    }
+
+    // West to east along the southern edge, then back along the northern one
+    private static GeoJsonPolygon viewportPolygon(double south, double west, double north, double east) {
+        int steps = Math.max(1, (int) Math.ceil((east - west) / VIEWPORT_EDGE_STEP_DEGREES));
+        List<Point> ring = new ArrayList<>();
+        for (int i = 0; i <= steps; i++) {
+            ring.add(new Point(west + (east - west) * i / steps, south));
+        }
+        for (int i = steps; i >= 0; i--) {
+            ring.add(new Point(west + (east - west) * i / steps, north));
+        }
+        ring.add(ring.get(0));
+        return new GeoJsonPolygon(ring);
+    }
+
+    private boolean isActive(DriverLocation location) {
+        return "online".equals(location.getStatus()) || "active".equals(location.getStatus());
+    }
+
     private DriverLocationResponse convertToResponse(DriverLocation location) {
         return new DriverLocationResponse(
                 location.getId(),
@@ -148,7 +418,8 @@ public class LocationService {
                 location.getStatus(),
                 location.getBusNumber(),
                 location.getTimestamp(),
-                location.getUpdatedAt()
+                location.getUpdatedAt(),
+                null
         );
     }
 }
@@ -2,10 +2,12 @@ package com.example.backend.service;
 
 import com.example.backend.entity.MaintenanceLog;
 import com.example.backend.repository.MaintenanceLogRepository;
+import com.example.backend.util.DateUtils;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -16,9 +18,11 @@ public class MaintenanceService {
 
     //@RequiredArgsConstructor create constructor for this
     private final MaintenanceLogRepository logRepository;
+    private final DashboardKpiCache dashboardKpiCache;
 
-    public MaintenanceService(MaintenanceLogRepository logRepository) {
+    public MaintenanceService(MaintenanceLogRepository logRepository, DashboardKpiCache dashboardKpiCache) {
         this.logRepository = logRepository;
+        this.dashboardKpiCache = dashboardKpiCache;
     }
 
 
@@ -40,18 +44,24 @@ public class MaintenanceService {
 
         maintenanceLog.setBusNumber(BusNumber);
         maintenanceLog.setMaintenanceType(MaintenanceType);
-        maintenanceLog.setMaintenanceDate(MaintenanceDate);
+        maintenanceLog.setMaintenanceDate(DateUtils.parseLenient(MaintenanceDate));
         maintenanceLog.setCost(Cost);
         maintenanceLog.setMaintenanceStatus(MaintenanceStatus);
         maintenanceLog.setNotes(Notes);
 
-        return logRepository.save(maintenanceLog);
+        try (DailyTotalsIndex.WriteGate ignored = dashboardKpiCache.openWrite()) {
+            MaintenanceLog saved = logRepository.save(maintenanceLog);
+            dashboardKpiCache.maintenanceAdded(saved.getMaintenanceDate(), saved.getCost());
+            return saved;
+        }
     }
 
     //Methode for Updating records
     //Updated time set to now
     public MaintenanceLog updateMaintenanceLog(String id,MaintenanceLog updatedLog){
         MaintenanceLog existingLog = logRepository.findById(id).orElseThrow(()->new RuntimeException("Log not found with id "+id));
+        LocalDate previousDate = existingLog.getMaintenanceDate();
+        Double previousCost = existingLog.getCost();
 
         existingLog.setBusNumber(updatedLog.getBusNumber());
         existingLog.setMaintenanceType(updatedLog.getMaintenanceType());
@@ -61,7 +71,12 @@ public class MaintenanceService {
         existingLog.setNotes(updatedLog.getNotes());
         existingLog.setUpdatedAt(LocalDateTime.now());
 
-        return logRepository.save(existingLog);
+        try (DailyTotalsIndex.WriteGate ignored = dashboardKpiCache.openWrite()) {
+            MaintenanceLog saved = logRepository.save(existingLog);
+            dashboardKpiCache.maintenanceRemoved(previousDate, previousCost);
+            dashboardKpiCache.maintenanceAdded(saved.getMaintenanceDate(), saved.getCost());
+            return saved;
+        }
 
     }
     //Find a record by id
@@ -71,6 +86,11 @@ public class MaintenanceService {
 
     //Delete a record using id
     public void deleteLogById(String id){
-        logRepository.deleteById(id);
+        logRepository.findById(id).ifPresent(log -> {
+            try (DailyTotalsIndex.WriteGate ignored = dashboardKpiCache.openWrite()) {
+                logRepository.deleteById(id);
+                dashboardKpiCache.maintenanceRemoved(log.getMaintenanceDate(), log.getCost());
+            }
+        });
     }
 }
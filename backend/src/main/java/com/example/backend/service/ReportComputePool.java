@@ -0,0 +1,46 @@
+package com.example.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Fork/join pool reserved for report computation. Reports never use the common
+ * pool or request threads, and the pool's fixed size caps how many cores a burst
+ * of reports can take; extra work waits in the pool's queues.
+ */
+@Component
+@Slf4j
+public class ReportComputePool {
+
+    private final ForkJoinPool pool;
+
+    public ReportComputePool(@Value("${reports.parallelism:0}") int parallelism) {
+        // By default half the cores, leaving the rest for request handling
+        int size = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.pool = new ForkJoinPool(size, basePool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(basePool);
+            thread.setName("report-worker-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        log.info("Report pool started with parallelism {}", size);
+    }
+
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return pool.invoke(task);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
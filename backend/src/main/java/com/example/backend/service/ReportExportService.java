@@ -0,0 +1,207 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Bus;
+import com.example.backend.entity.DailyIncomeRollup;
+import com.example.backend.entity.Route;
+import com.example.backend.entity.Schedule;
+import com.example.backend.repository.BusRepository;
+import com.example.backend.repository.RouteRepository;
+import com.example.backend.util.AggregationUtils;
+import com.example.backend.util.DateUtils;
+import com.example.backend.util.DocumentRefs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Streams trips and daily income rows for a date range as CSV or NDJSON.
+ * Rows are read through a cursor and written as they arrive, flushing every
+ * few hundred rows, so memory use does not grow with the range and the client
+ * starts receiving data before the query has finished. Trip schedules are
+ * looked up a batch of trips at a time and dropped once the batch is written.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReportExportService {
+
+    private static final int FLUSH_EVERY = 500;
+    private static final int SCHEDULE_BATCH = 500;
+
+    private static final List<String> TRIP_COLUMNS = List.of(
+            "id", "date", "scheduleNumber", "busNumber", "routeName",
+            "actualDepartureTime", "actualArrivalTime", "passengerCount", "income");
+
+    private static final List<String> INCOME_COLUMNS = List.of(
+            "date", "busId", "busNumber", "routeId", "routeName", "tripCount", "passengerCount", "income");
+
+    private final MongoTemplate mongoTemplate;
+    private final BusRepository busRepository;
+    private final RouteRepository routeRepository;
+    private final BatchReferenceLoader batchReferenceLoader;
+    private final ObjectMapper objectMapper;
+
+    public void exportTrips(String fromDate, String toDate, String format, OutputStream out) throws IOException {
+        // Served by the date index, so the sort needs no in-memory stage
+        Query query = new Query(Criteria.where("date").gte(LocalDate.parse(fromDate)).lte(LocalDate.parse(toDate)))
+                .with(Sort.by(Sort.Direction.ASC, "date"));
+
+        RowWriter writer = new RowWriter(format, TRIP_COLUMNS, out);
+        // Trips are written a batch at a time, after one query for the batch's schedules
+        List<Document> batch = new ArrayList<>(SCHEDULE_BATCH);
+        try (Stream<Document> trips = mongoTemplate.stream(query, Document.class, "trip")) {
+            for (Document trip : (Iterable<Document>) trips::iterator) {
+                batch.add(trip);
+                if (batch.size() == SCHEDULE_BATCH) {
+                    writeTrips(batch, writer);
+                    batch.clear();
+                }
+            }
+        }
+        writeTrips(batch, writer);
+        writer.finish();
+    }
+
+    private void writeTrips(List<Document> trips, RowWriter writer) throws IOException {
+        Map<String, Schedule> schedules = loadSchedules(trips);
+        for (Document trip : trips) {
+            String scheduleId = DocumentRefs.idOf(trip.get("schedule"));
+            Schedule schedule = scheduleId != null ? schedules.get(scheduleId) : null;
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", trip.get("_id") != null ? trip.get("_id").toString() : null);
+            row.put("date", DateUtils.format(DateUtils.fromStored(trip.get("date"))));
+            row.put("scheduleNumber", scheduleId);
+            row.put("busNumber", schedule != null && schedule.getBus() != null ? schedule.getBus().getBusNumber() : null);
+            row.put("routeName", schedule != null && schedule.getRoute() != null ? schedule.getRoute().getRouteName() : null);
+            row.put("actualDepartureTime", trip.getString("actualDepartureTime"));
+            row.put("actualArrivalTime", trip.getString("actualArrivalTime"));
+            row.put("passengerCount", trip.get("passengerCount"));
+            row.put("income", trip.get("income"));
+            writer.write(row);
+        }
+    }
+
+    // The schedules of a batch of trips, with their buses and routes, by schedule number
+    private Map<String, Schedule> loadSchedules(List<Document> trips) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Document trip : trips) {
+            String scheduleId = DocumentRefs.idOf(trip.get("schedule"));
+            if (scheduleId != null) {
+                ids.add(scheduleId);
+            }
+        }
+        Map<String, Schedule> byId = new HashMap<>();
+        if (ids.isEmpty()) {
+            return byId;
+        }
+        List<Object> idValues = new ArrayList<>();
+        for (String id : ids) {
+            idValues.addAll(AggregationUtils.idValues(id));
+        }
+        for (Schedule schedule : batchReferenceLoader.find(new Query(Criteria.where("_id").in(idValues)), Schedule.class)) {
+            byId.put(schedule.getScheduleNumber(), schedule);
+        }
+        return byId;
+    }
+
+    public void exportDailyIncome(String fromDate, String toDate, String format, OutputStream out) throws IOException {
+        Query query = new Query(Criteria.where("date").gte(fromDate).lte(toDate))
+                .with(Sort.by(Sort.Direction.ASC, "date", "busId"));
+
+        Map<String, String> busNumbers = busRepository.findAll().stream()
+                .filter(bus -> bus.getBusNumber() != null)
+                .collect(Collectors.toMap(Bus::getId, Bus::getBusNumber));
+        Map<String, String> routeNames = routeRepository.findAll().stream()
+                .filter(route -> route.getRouteName() != null)
+                .collect(Collectors.toMap(Route::getId, Route::getRouteName));
+
+        RowWriter writer = new RowWriter(format, INCOME_COLUMNS, out);
+        try (Stream<DailyIncomeRollup> rows = mongoTemplate.stream(query, DailyIncomeRollup.class)) {
+            for (DailyIncomeRollup rollup : (Iterable<DailyIncomeRollup>) rows::iterator) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("date", rollup.getDate());
+                row.put("busId", rollup.getBusId());
+                row.put("busNumber", busNumbers.get(rollup.getBusId()));
+                row.put("routeId", rollup.getRouteId());
+                row.put("routeName", routeNames.get(rollup.getRouteId()));
+                row.put("tripCount", rollup.getTripCount());
+                row.put("passengerCount", rollup.getPassengerCount());
+                row.put("income", rollup.getIncome());
+                writer.write(row);
+            }
+        }
+        writer.finish();
+    }
+
+    private class RowWriter {
+        private final boolean csv;
+        private final List<String> columns;
+        private final Writer writer;
+        private int rows;
+
+        private RowWriter(String format, List<String> columns, OutputStream out) throws IOException {
+            this.csv = !"ndjson".equalsIgnoreCase(format);
+            this.columns = columns;
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            if (csv) {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+                writer.flush();
+            }
+        }
+
+        private void write(Map<String, Object> row) throws IOException {
+            if (csv) {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(escape(row.get(columns.get(i))));
+                }
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+            }
+            writer.write('\n');
+            // The first row goes out at once, then rows are sent in batches
+            if (++rows == 1 || rows % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+
+        private void finish() throws IOException {
+            writer.flush();
+        }
+
+        private String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value.toString();
+            if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+                return "\"" + text.replace("\"", "\"\"") + "\"";
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.request.ReportJobRequestDto;
+import com.example.backend.dto.response.ReportJobResponse;
+import com.example.backend.util.ExportFormat;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs reports in the background so a long date range does not hold a request
+ * thread. Jobs run on a small bounded pool; submitting the same parameters as a
+ * job that is still queued or running returns that job instead of starting another.
+ * Finished results stay available for a limited time, and only the most recent
+ * ones are kept. Progress is pushed to /topic/admin/report-jobs/{jobId}.
+ */
+@Service
+@Slf4j
+public class ReportJobService {
+
+    public static final String JOB_TOPIC_PREFIX = "/topic/admin/report-jobs/";
+
+    private final AllBusesReportService allBusesReportService;
+    private final BusReportService busReportService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Duration resultTtl;
+    private final int maxResults;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // Queued or running job per set of parameters
+    private final Map<String, ReportJob> active = new ConcurrentHashMap<>();
+    // Finished jobs per set of parameters, least recently used first; guarded by this
+    private final LinkedHashMap<String, ReportJob> finished = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ReportJobService(AllBusesReportService allBusesReportService,
+                            BusReportService busReportService,
+                            SimpMessagingTemplate messagingTemplate,
+                            @Value("${reports.jobs.threads:2}") int threads,
+                            @Value("${reports.jobs.queue-capacity:20}") int queueCapacity,
+                            @Value("${reports.jobs.result-ttl-minutes:30}") long resultTtlMinutes,
+                            @Value("${reports.jobs.max-results:50}") int maxResults) {
+        this.allBusesReportService = allBusesReportService;
+        this.busReportService = busReportService;
+        this.messagingTemplate = messagingTemplate;
+        this.resultTtl = Duration.ofMinutes(resultTtlMinutes);
+        this.maxResults = maxResults;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Start a report, or return the job already producing or holding the same report.
+     */
+    public synchronized ReportJobResponse submit(ReportJobRequestDto request) {
+        if ("bus".equals(request.getType()) && (request.getBusNumber() == null || request.getBusNumber().isBlank())) {
+            throw new IllegalArgumentException("Bus number is required for a bus report");
+        }
+        if (!ExportFormat.isValidRange(request.getFromDate(), request.getToDate())) {
+            throw new IllegalArgumentException("Dates must be yyyy-MM-dd with fromDate not after toDate");
+        }
+
+        String key = keyOf(request);
+        ReportJob running = active.get(key);
+        if (running != null) {
+            return running.toResponse();
+        }
+        ReportJob done = finished.get(key);
+        if (done != null && !isExpired(done) && "completed".equals(done.status)) {
+            return done.toResponse();
+        }
+
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), key, request);
+        jobs.put(job.id, job);
+        active.put(key, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            active.remove(key);
+            throw new RuntimeException("Too many reports are queued, try again later");
+        }
+        return job.toResponse();
+    }
+
+    public Optional<ReportJobResponse> getJob(String jobId) {
+        return findJob(jobId).map(ReportJob::toResponse);
+    }
+
+    /**
+     * The finished report, or empty when the job is unknown, expired or not completed.
+     */
+    public Optional<Object> getResult(String jobId) {
+        return findJob(jobId)
+                .filter(job -> "completed".equals(job.status))
+                .map(job -> job.result);
+    }
+
+    /**
+     * Drop finished jobs older than the result lifetime. Returns how many were removed.
+     */
+    public synchronized int purgeExpired() {
+        int removed = 0;
+        Iterator<ReportJob> it = finished.values().iterator();
+        while (it.hasNext()) {
+            ReportJob job = it.next();
+            if (isExpired(job)) {
+                it.remove();
+                jobs.remove(job.id);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Optional<ReportJob> findJob(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || isExpired(job)) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    private void run(ReportJob job) {
+        job.start();
+        publish(job);
+        try {
+            Object result = "bus".equals(job.request.getType())
+                    ? busReportService.getBusReport(job.request.getBusNumber(), job.request.getFromDate(), job.request.getToDate())
+                    : allBusesReportService.getAllBusesReport(job.request.getFromDate(), job.request.getToDate(),
+                            percent -> {
+                                if (job.progress(percent)) {
+                                    publish(job);
+                                }
+                            });
+            job.complete(result);
+        } catch (Exception e) {
+            log.warn("Report job {} failed: {}", job.id, e.getMessage());
+            job.fail(e.getMessage());
+        }
+        finish(job);
+        publish(job);
+    }
+
+    private synchronized void finish(ReportJob job) {
+        active.remove(job.key, job);
+        // A rerun of the same report replaces the earlier job; its id goes with it
+        ReportJob previous = finished.put(job.key, job);
+        if (previous != null && previous != job) {
+            jobs.remove(previous.id);
+        }
+        // Evict the least recently used results beyond the limit
+        Iterator<ReportJob> it = finished.values().iterator();
+        while (finished.size() > maxResults && it.hasNext()) {
+            ReportJob eldest = it.next();
+            it.remove();
+            jobs.remove(eldest.id);
+        }
+    }
+
+    private boolean isExpired(ReportJob job) {
+        return job.completedAt != null && job.completedAt.plus(resultTtl).isBefore(LocalDateTime.now());
+    }
+
+    private void publish(ReportJob job) {
+        try {
+            messagingTemplate.convertAndSend(JOB_TOPIC_PREFIX + job.id, job.toResponse());
+        } catch (Exception e) {
+            log.debug("Could not publish report job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    private static String keyOf(ReportJobRequestDto request) {
+        return request.getType() + ":" + ("bus".equals(request.getType()) ? request.getBusNumber() : "")
+                + ":" + request.getFromDate() + ":" + request.getToDate();
+    }
+
+    private static final class ReportJob {
+        private final String id;
+        private final String key;
+        private final ReportJobRequestDto request;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        private volatile String status = "queued";
+        private volatile int progress;
+        private volatile String error;
+        private volatile Object result;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+
+        private ReportJob(String id, String key, ReportJobRequestDto request) {
+            this.id = id;
+            this.key = key;
+            this.request = request;
+        }
+
+        private void start() {
+            startedAt = LocalDateTime.now();
+            status = "running";
+        }
+
+        // True when the value moved forward
+        private synchronized boolean progress(int percent) {
+            if (percent <= progress) {
+                return false;
+            }
+            progress = Math.min(percent, 99);
+            return true;
+        }
+
+        private void complete(Object value) {
+            result = value;
+            progress = 100;
+            completedAt = LocalDateTime.now();
+            status = "completed";
+        }
+
+        private void fail(String message) {
+            error = message;
+            completedAt = LocalDateTime.now();
+            status = "failed";
+        }
+
+        private ReportJobResponse toResponse() {
+            return new ReportJobResponse(id, request.getType(), request.getBusNumber(),
+                    request.getFromDate(), request.getToDate(), status, progress, error,
+                    createdAt, startedAt, completedAt);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.DriverLocation;
+import com.example.backend.util.GeoUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides how long a driver's app should wait before the next location report.
+ * Moving buses report often enough to move about one target distance between
+ * fixes, turning buses report quickly, parked or off-duty buses report rarely,
+ * and every interval is stretched when the server is receiving more pings than
+ * its configured capacity.
+ */
+@Component
+@Slf4j
+public class SamplingIntervalPolicy {
+
+    private static final int WINDOW_SECONDS = 10;
+
+    @Value("${location.sampling.min-seconds:5}")
+    private int minSeconds;
+
+    @Value("${location.sampling.max-seconds:60}")
+    private int maxSeconds;
+
+    @Value("${location.stale-threshold-seconds:120}")
+    private long staleThresholdSeconds;
+
+    @Value("${location.sampling.idle-seconds:60}")
+    private int idleSeconds;
+
+    @Value("${location.sampling.stopped-seconds:30}")
+    private int stoppedSeconds;
+
+    @Value("${location.sampling.target-distance-metres:150}")
+    private double targetDistanceMetres;
+
+    @Value("${location.sampling.turn-degrees:30}")
+    private double turnDegrees;
+
+    @Value("${location.ingest-capacity-per-second:200}")
+    private double ingestCapacityPerSecond;
+
+    // Ping counts for the last WINDOW_SECONDS seconds, indexed by epoch second
+    private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray slotSecond = new AtomicLongArray(WINDOW_SECONDS);
+
+    // A driver told to wait as long as the stale threshold would be set offline between reports,
+    // so the longest interval handed out is half the threshold
+    @PostConstruct
+    public void capToStaleThreshold() {
+        int cap = (int) Math.max(minSeconds, staleThresholdSeconds / 2);
+        if (maxSeconds > cap) {
+            log.warn("location.sampling.max-seconds={} is too close to location.stale-threshold-seconds={}; using {}",
+                    maxSeconds, staleThresholdSeconds, cap);
+            maxSeconds = cap;
+        }
+    }
+
+    public void recordPing() {
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % WINDOW_SECONDS);
+        long owner = slotSecond.get(slot);
+        // First ping of a new second claims the slot and clears the stale count; the few
+        // increments that can race with the reset only make the estimate slightly low
+        if (owner != second && slotSecond.compareAndSet(slot, owner, second)) {
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+    }
+
+    // Average pings per second over the sliding window
+    public double currentIngestRate() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (now - slotSecond.get(i) < WINDOW_SECONDS) {
+                total += counts.get(i);
+            }
+        }
+        return (double) total / WINDOW_SECONDS;
+    }
+
+    /**
+     * Seconds until the next report, given the driver's current live position
+     * (with motion filled in by applyMotion) and whether their bus is running a schedule right now.
+     */
+    public int nextInterval(DriverLocation current, boolean onOngoingSchedule) {
+        double interval;
+        Double speed = current.getSpeed();
+
+        if (!onOngoingSchedule) {
+            interval = idleSeconds;
+        } else if (speed == null) {
+            interval = minSeconds;
+        } else if (speed < 1.0) {
+            interval = stoppedSeconds;
+        } else {
+            interval = targetDistanceMetres / speed;
+            if (current.getHeadingChange() != null && current.getHeadingChange() >= turnDegrees) {
+                interval = minSeconds;
+            }
+        }
+
+        double load = currentIngestRate() / ingestCapacityPerSecond;
+        if (load > 1.0) {
+            interval *= Math.min(load, 4.0);
+        }
+
+        return (int) Math.round(Math.max(minSeconds, Math.min(maxSeconds, interval)));
+    }
+
+    /**
+     * Fill speed, heading and heading change on the new position from the previous one.
+     */
+    public void applyMotion(DriverLocation previous, DriverLocation current) {
+        if (previous == null || previous.getLatitude() == null || previous.getTimestamp() == null) {
+            return;
+        }
+        double seconds = Duration.between(previous.getTimestamp(), current.getTimestamp()).toMillis() / 1000.0;
+        if (seconds <= 0) {
+            current.setSpeed(previous.getSpeed());
+            current.setHeading(previous.getHeading());
+            return;
+        }
+
+        double distance = GeoUtils.distanceMetres(previous.getLatitude(), previous.getLongitude(),
+                current.getLatitude(), current.getLongitude());
+        current.setSpeed(distance / seconds);
+
+        // Heading is meaningless for GPS jitter while standing still
+        if (distance < 10.0) {
+            current.setHeading(previous.getHeading());
+            current.setHeadingChange(0.0);
+            return;
+        }
+        double heading = GeoUtils.bearingDegrees(previous.getLatitude(), previous.getLongitude(),
+                current.getLatitude(), current.getLongitude());
+        current.setHeading(heading);
+        current.setHeadingChange(previous.getHeading() != null ? GeoUtils.headingDelta(previous.getHeading(), heading) : null);
+    }
+}
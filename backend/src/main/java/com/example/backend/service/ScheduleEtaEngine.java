@@ -0,0 +1,198 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.response.ScheduleEtaResponse;
+import com.example.backend.entity.Schedule;
+import com.example.backend.util.GeoUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a running arrival estimate for every ongoing schedule.
+ * Each ping adds the distance covered since the previous ping to the distance
+ * travelled and folds the observed speed into a moving average, so an update
+ * costs a constant amount of work. Remaining distance is the route distance
+ * minus what has been travelled; the estimate divides it by the recent speed,
+ * falling back to the speed implied by the timetable while the bus is stopped.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScheduleEtaEngine {
+
+    // Faster than this between two fixes is a GPS jump, not driving
+    private static final double MAX_PLAUSIBLE_SPEED = 40.0;
+    private static final double STOPPED_SPEED = 1.0;
+
+    @Value("${location.eta.speed-smoothing:0.3}")
+    private double speedSmoothing;
+
+    private final ActiveScheduleCache activeScheduleCache;
+
+    private final Map<String, EtaState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Apply a position of the given bus. Returns the updated estimate, or empty
+     * when the bus is not running a schedule.
+     */
+    public Optional<ScheduleEtaResponse> update(String busId, double latitude, double longitude, LocalDateTime at) {
+        Optional<Schedule> ongoing = activeScheduleCache.getOngoing(busId);
+        if (ongoing.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Schedule schedule = ongoing.get();
+        EtaState state = states.computeIfAbsent(schedule.getScheduleNumber(), k -> new EtaState(busId, schedule, at));
+        synchronized (state) {
+            state.advance(latitude, longitude, at, speedSmoothing);
+            return Optional.of(state.toResponse());
+        }
+    }
+
+    public Optional<ScheduleEtaResponse> get(String scheduleNumber) {
+        EtaState state = states.get(scheduleNumber);
+        if (state == null || !isStillOngoing(state)) {
+            return Optional.empty();
+        }
+        synchronized (state) {
+            return Optional.of(state.toResponse());
+        }
+    }
+
+    /**
+     * Estimates for all ongoing schedules.
+     */
+    public List<ScheduleEtaResponse> getAll() {
+        List<ScheduleEtaResponse> etas = new ArrayList<>();
+        for (EtaState state : states.values()) {
+            if (!isStillOngoing(state)) {
+                continue;
+            }
+            synchronized (state) {
+                etas.add(state.toResponse());
+            }
+        }
+        return etas;
+    }
+
+    /**
+     * Drop the estimates of schedules that have stopped running. Returns the number dropped.
+     */
+    public int pruneEnded() {
+        int pruned = 0;
+        for (EtaState state : states.values()) {
+            if (!isStillOngoing(state) && states.remove(state.scheduleNumber, state)) {
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    private boolean isStillOngoing(EtaState state) {
+        return activeScheduleCache.getOngoing(state.busId)
+                .map(schedule -> state.scheduleNumber.equals(schedule.getScheduleNumber()))
+                .orElse(false);
+    }
+
+    private static final class EtaState {
+        private final String busId;
+        private final String scheduleNumber;
+        private final String busNumber;
+        private final String routeName;
+        private final Double routeMetres;
+        private final LocalDateTime plannedArrival;
+        // Average speed the timetable assumes, used until the bus has been seen moving
+        private final Double plannedSpeed;
+
+        private double travelledMetres;
+        private Double speed;
+        private Double lastLatitude;
+        private Double lastLongitude;
+        private LocalDateTime lastAt;
+
+        private EtaState(String busId, Schedule schedule, LocalDateTime firstSeen) {
+            this.busId = busId;
+            this.scheduleNumber = schedule.getScheduleNumber();
+            this.busNumber = schedule.getBus() != null ? schedule.getBus().getBusNumber() : null;
+            this.routeName = schedule.getRoute() != null ? schedule.getRoute().getRouteName() : null;
+            this.routeMetres = schedule.getRoute() != null && schedule.getRoute().getDistance() != null
+                    ? schedule.getRoute().getDistance() * 1000.0
+                    : null;
+
+            LocalDateTime plannedDeparture = schedule.getDate() != null && schedule.getDepartureTime() != null
+                    ? schedule.getDate().atTime(schedule.getDepartureTime())
+                    : null;
+            LocalDateTime arrival = schedule.getDate() != null && schedule.getArrivalTime() != null
+                    ? schedule.getDate().atTime(schedule.getArrivalTime())
+                    : null;
+            // Overnight trips arrive on the following day
+            if (arrival != null && plannedDeparture != null && arrival.isBefore(plannedDeparture)) {
+                arrival = arrival.plusDays(1);
+            }
+            this.plannedArrival = arrival;
+
+            long plannedSeconds = plannedDeparture != null && arrival != null
+                    ? Duration.between(plannedDeparture, arrival).getSeconds()
+                    : 0;
+            this.plannedSpeed = routeMetres != null && plannedSeconds > 0 ? routeMetres / plannedSeconds : null;
+
+            // When tracking starts mid-trip (e.g. after a restart), assume the bus is on plan so far
+            if (plannedSpeed != null && firstSeen.isAfter(plannedDeparture)) {
+                this.travelledMetres = Math.min(routeMetres,
+                        plannedSpeed * Duration.between(plannedDeparture, firstSeen).getSeconds());
+            }
+        }
+
+        private void advance(double latitude, double longitude, LocalDateTime at, double smoothing) {
+            if (lastAt != null) {
+                double seconds = Duration.between(lastAt, at).toMillis() / 1000.0;
+                if (seconds <= 0) {
+                    return;
+                }
+                double metres = GeoUtils.distanceMetres(lastLatitude, lastLongitude, latitude, longitude);
+                double observed = metres / seconds;
+                // A jump moves the reference point without counting as distance or speed
+                if (observed <= MAX_PLAUSIBLE_SPEED) {
+                    travelledMetres += metres;
+                    speed = speed == null ? observed : smoothing * observed + (1 - smoothing) * speed;
+                }
+            }
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+            lastAt = at;
+        }
+
+        private ScheduleEtaResponse toResponse() {
+            Double remaining = routeMetres != null ? Math.max(0, routeMetres - travelledMetres) : null;
+
+            LocalDateTime estimate = plannedArrival;
+            Double effectiveSpeed = speed != null && speed >= STOPPED_SPEED ? speed : plannedSpeed;
+            if (remaining != null && effectiveSpeed != null && effectiveSpeed > 0 && lastAt != null) {
+                estimate = lastAt.plusSeconds(Math.round(remaining / effectiveSpeed));
+            }
+            Long delay = estimate != null && plannedArrival != null
+                    ? Duration.between(plannedArrival, estimate).getSeconds()
+                    : null;
+
+            return new ScheduleEtaResponse(
+                    scheduleNumber,
+                    busNumber,
+                    routeName,
+                    travelledMetres,
+                    remaining,
+                    speed,
+                    plannedArrival,
+                    estimate,
+                    delay,
+                    lastAt
+            );
+        }
+    }
+}
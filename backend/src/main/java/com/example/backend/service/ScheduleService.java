@@ -15,8 +15,8 @@ import com.example.backend.repository.UserRepo;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalTime;
@@ -25,36 +25,47 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class ScheduleService{
 
+    private static final Sort LATEST_FIRST = Sort.by(Sort.Direction.DESC, "date", "_id");
+
     private final ScheduleRepository repository;
     private final BusRepository busRepository;
     private final RouteRepository routeRepository;
     private final UserRepo userRepo; // Add this
+    private final ActiveScheduleCache activeScheduleCache;
+    private final DashboardKpiCache dashboardKpiCache;
+    private final AssignmentKeyService assignmentKeyService;
+    private final BatchReferenceLoader batchReferenceLoader;
+    private final SearchTextService searchTextService;
+    private final KeysetPager keysetPager;
 
     @Autowired
-    public ScheduleService(ScheduleRepository repository, BusRepository busRepository, RouteRepository routeRepository, UserRepo userRepo) {
+    public ScheduleService(ScheduleRepository repository, BusRepository busRepository, RouteRepository routeRepository, UserRepo userRepo, ActiveScheduleCache activeScheduleCache, DashboardKpiCache dashboardKpiCache, AssignmentKeyService assignmentKeyService, BatchReferenceLoader batchReferenceLoader, SearchTextService searchTextService, KeysetPager keysetPager) {
         this.repository = repository;
         this.busRepository = busRepository;
         this.routeRepository = routeRepository;
         this.userRepo = userRepo; // Initialize it
+        this.activeScheduleCache = activeScheduleCache;
+        this.dashboardKpiCache = dashboardKpiCache;
+        this.assignmentKeyService = assignmentKeyService;
+        this.batchReferenceLoader = batchReferenceLoader;
+        this.searchTextService = searchTextService;
+        this.keysetPager = keysetPager;
     }
 
-    public PaginatedScheduleDto search(String searchText, int page, int size) { 
-        Page<Schedule> schedulePage = repository
-                .findByRouteContainingIgnoreCase(searchText, PageRequest.of(page, size)); 
-
-        List<Schedule> schedules = schedulePage.getContent();
-        long totalCount = schedulePage.getTotalElements();
+    public PaginatedScheduleDto search(String searchText, int page, int size, String cursor, boolean withCount) { 
+        KeysetPager.Slice<Schedule> slice = keysetPager.search(searchText, LATEST_FIRST, cursor, page, size, withCount, Schedule.class);
 
-        List<ResponseScheduleDto> dtoList = schedules.stream()
+        List<ResponseScheduleDto> dtoList = slice.content().stream()
                 .map(this::mapToDto) 
                 .collect(Collectors.toList());
 
-        return new PaginatedScheduleDto(dtoList, totalCount);
+        return new PaginatedScheduleDto(dtoList, slice.total(), slice.nextCursor());
     }
 
     public Optional<ResponseScheduleDto> getSchedule(String id) { 
@@ -84,6 +95,8 @@ public class ScheduleService{
         schedule.setDate(dto.getDate());
         schedule.setStatus(dto.getStatus());
         Schedule saveSchedule = repository.save(schedule);
+        activeScheduleCache.invalidate(bus.getId());
+        dashboardKpiCache.invalidateFleetCounts();
         return mapToDto(saveSchedule);
     }
 
@@ -91,6 +104,11 @@ public class ScheduleService{
         
         Schedule existing = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Schedule not found with ID: " + id));
+        if (existing.getBus() != null) {
+            activeScheduleCache.invalidate(existing.getBus().getId());
+        }
+        String previousBusId = existing.getBus() != null ? existing.getBus().getId() : null;
+        String previousRouteId = existing.getRoute() != null ? existing.getRoute().getId() : null;
 
         
         Bus bus = busRepository.findById(dto.getBusId())
@@ -117,18 +135,25 @@ public class ScheduleService{
 
     
         Schedule saved = repository.save(existing);
+        activeScheduleCache.invalidate(bus.getId());
+        assignmentKeyService.scheduleReassigned(saved, previousBusId, previousRouteId);
+        searchTextService.scheduleChanged(saved);
 
         
         return mapToDto(saved);
     }
 
     public String deleteSchedule(String id) { 
+        repository.findById(id)
+                .filter(schedule -> schedule.getBus() != null)
+                .ifPresent(schedule -> activeScheduleCache.invalidate(schedule.getBus().getId()));
         repository.deleteById(id);
+        dashboardKpiCache.invalidateFleetCounts();
         return "Schedule deleted successfully!"; 
     }
 
     public List<ResponseScheduleDto> getAllSchedules() {
-    return repository.findAll().stream()
+    return batchReferenceLoader.findAll(Schedule.class).stream()
             .map(this::mapToDto)
             .collect(Collectors.toList());
     }
@@ -169,16 +194,19 @@ public class ScheduleService{
             schedule.setBus(null);
         }
         repository.saveAll(schedules);
+        assignmentKeyService.busRemoved(busId, schedules);
+        activeScheduleCache.invalidate(busId);
     }
 
-    public PaginatedScheduleDto getSchedulesByStatus(String status, int page, int size) {
-        Page<Schedule> schedulePage = repository.findByStatusIgnoreCase(status, PageRequest.of(page, size));
+    public PaginatedScheduleDto getSchedulesByStatus(String status, int page, int size, String cursor, boolean withCount) {
+        Criteria filter = Criteria.where("status").regex("^" + Pattern.quote(status) + "$", "i");
+        KeysetPager.Slice<Schedule> slice = keysetPager.find(filter, LATEST_FIRST, cursor, page, size, withCount, Schedule.class);
 
-        List<ResponseScheduleDto> dtoList = schedulePage.getContent().stream()
+        List<ResponseScheduleDto> dtoList = slice.content().stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
 
-        return new PaginatedScheduleDto(dtoList, schedulePage.getTotalElements());
+        return new PaginatedScheduleDto(dtoList, slice.total(), slice.nextCursor());
     }
 
 
@@ -189,6 +217,8 @@ public class ScheduleService{
         responseDto.setArrivalTime(schedule.getArrivalTime());
         responseDto.setDate(schedule.getDate());
         responseDto.setStatus(schedule.getStatus());
+        responseDto.setActualDepartureTime(schedule.getActualDepartureTime());
+        responseDto.setActualArrivalTime(schedule.getActualArrivalTime());
 
         if (schedule.getBus() != null) {
             responseDto.setBusId(schedule.getBus() != null ? schedule.getBus().getId() : null);
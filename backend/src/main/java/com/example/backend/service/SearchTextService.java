@@ -0,0 +1,138 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Bus;
+import com.example.backend.entity.Route;
+import com.example.backend.entity.Schedule;
+import com.example.backend.entity.Trip;
+import com.example.backend.entity.User;
+import com.example.backend.util.AggregationUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps the search text of schedules and trips current. Users and routes are
+ * text-indexed on their own fields plus the prefixes of their words, which are
+ * set on save. Schedules and trips have no searchable text of their own, so
+ * each carries a search text built from its schedule number, bus number and
+ * route; this service keeps those copies in step when a bus or route changes
+ * and fills them in on older rows. KeysetPager runs the searches.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchTextService {
+
+    private static final int BACKFILL_CHUNK = 200;
+
+    private final MongoTemplate mongoTemplate;
+    private final BatchReferenceLoader batchReferenceLoader;
+
+    // Called after a schedule has been saved, with its search text already rebuilt
+    public void scheduleChanged(Schedule schedule) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("schedule.$id").in(AggregationUtils.idValues(schedule.getScheduleNumber()))),
+                new Update().set("searchText", schedule.getSearchText()),
+                Trip.class);
+    }
+
+    // Called after a bus has been saved; only a new number changes the search text
+    public void busChanged(Bus bus, String previousBusNumber) {
+        if (Objects.equals(bus.getBusNumber(), previousBusNumber)) {
+            return;
+        }
+        rewrite(batchReferenceLoader.find(new Query(Criteria.where("assignedBusId").is(bus.getId())), Schedule.class));
+    }
+
+    // Called after a route has been saved; only new names change the search text
+    public void routeChanged(Route route, String previousName, String previousStart, String previousEnd) {
+        if (Objects.equals(route.getRouteName(), previousName)
+                && Objects.equals(route.getStartingPoint(), previousStart)
+                && Objects.equals(route.getEndingPoint(), previousEnd)) {
+            return;
+        }
+        rewrite(batchReferenceLoader.find(
+                new Query(Criteria.where("routeId.$id").in(AggregationUtils.idValues(route.getId()))), Schedule.class));
+    }
+
+    /**
+     * Fill in the search text on schedules written before it existed, and on
+     * their trips, and the word prefixes on users and routes. Works through the
+     * rows in chunks; returns the number of schedules updated.
+     */
+    public int backfill() {
+        long started = System.currentTimeMillis();
+        int updated = 0;
+        while (true) {
+            Query query = new Query(Criteria.where("searchText").exists(false))
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(BACKFILL_CHUNK);
+            List<Schedule> schedules = batchReferenceLoader.find(query, Schedule.class);
+            if (schedules.isEmpty()) {
+                break;
+            }
+            rewrite(schedules);
+            updated += schedules.size();
+        }
+        int users = backfillPrefixes(User.class, User::refreshSearchPrefixes, User::getId, User::getSearchPrefixes);
+        int routes = backfillPrefixes(Route.class, Route::refreshSearchPrefixes, Route::getId, Route::getSearchPrefixes);
+        if (updated + users + routes > 0) {
+            log.info("Backfilled search text on {} schedules, {} users and {} routes in {} ms",
+                    updated, users, routes, System.currentTimeMillis() - started);
+        }
+        return updated;
+    }
+
+    // Rebuild the schedules' search text from their current bus and route and copy it to
+    // their trips, with one bulk write for the schedules and one for the trips
+    private void rewrite(List<Schedule> schedules) {
+        if (schedules.isEmpty()) {
+            return;
+        }
+        BulkOperations scheduleWrites = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Schedule.class);
+        BulkOperations tripWrites = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trip.class);
+        for (Schedule schedule : schedules) {
+            schedule.refreshSearchText();
+            Update update = new Update().set("searchText", schedule.getSearchText());
+            List<Object> ids = AggregationUtils.idValues(schedule.getScheduleNumber());
+            scheduleWrites.updateOne(new Query(Criteria.where("_id").in(ids)), update);
+            tripWrites.updateMulti(new Query(Criteria.where("schedule.$id").in(ids)), update);
+        }
+        scheduleWrites.execute();
+        tripWrites.execute();
+    }
+
+    // Set the prefixes on rows saved before they had them, a chunk and one bulk write at a time
+    private <T> int backfillPrefixes(Class<T> type, Consumer<T> refresh,
+                                     Function<T, String> id, Function<T, String> prefixes) {
+        int updated = 0;
+        while (true) {
+            Query query = new Query(Criteria.where("searchPrefixes").exists(false))
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(BACKFILL_CHUNK);
+            List<T> rows = mongoTemplate.find(query, type);
+            if (rows.isEmpty()) {
+                return updated;
+            }
+            BulkOperations writes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+            for (T row : rows) {
+                refresh.accept(row);
+                writes.updateOne(new Query(Criteria.where("_id").in(AggregationUtils.idValues(id.apply(row)))),
+                        new Update().set("searchPrefixes", prefixes.apply(row)));
+            }
+            writes.execute();
+            updated += rows.size();
+        }
+    }
+}
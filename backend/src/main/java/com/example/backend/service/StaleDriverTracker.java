@@ -0,0 +1,110 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.DriverLocation;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Tracks when each active driver will go silent, ordered by deadline.
+ * Each tracked driver has exactly one entry in the heap. When an entry
+ * comes due and the driver has pinged since, it is pushed back to the
+ * new deadline, so a sweep only touches entries that are actually due.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StaleDriverTracker {
+
+    private final LiveLocationStore liveLocationStore;
+
+    @Value("${location.stale-threshold-seconds:120}")
+    private long thresholdSeconds;
+
+    private final PriorityBlockingQueue<Deadline> deadlines = new PriorityBlockingQueue<>();
+    private final Set<String> tracked = ConcurrentHashMap.newKeySet();
+
+    // Drivers loaded as active from the database must expire as well
+    @PostConstruct
+    public void trackLoadedDrivers() {
+        for (DriverLocation location : liveLocationStore.getAll()) {
+            if (isActive(location) && location.getUpdatedAt() != null) {
+                track(location.getDriverUsername(), location.getUpdatedAt());
+            }
+        }
+    }
+
+    public void touch(String driverUsername) {
+        track(driverUsername, LocalDateTime.now());
+    }
+
+    /**
+     * Track again drivers returned by pollExpired that pinged before they could be
+     * set offline. Their ping may have found them still tracked and added no deadline.
+     */
+    public void retrack(Collection<String> driverUsernames) {
+        for (String driverUsername : driverUsernames) {
+            liveLocationStore.get(driverUsername)
+                    .filter(location -> isActive(location) && location.getUpdatedAt() != null)
+                    .ifPresent(location -> track(driverUsername, location.getUpdatedAt()));
+        }
+    }
+
+    public LocalDateTime cutoff(LocalDateTime now) {
+        return now.minusSeconds(thresholdSeconds);
+    }
+
+    /**
+     * Remove and return the drivers whose silence passed the threshold by now.
+     * Cost is proportional to the number of due entries, not to the fleet size.
+     */
+    public List<String> pollExpired(LocalDateTime now) {
+        LocalDateTime cutoff = cutoff(now);
+        List<String> expired = new ArrayList<>();
+
+        Deadline head;
+        while ((head = deadlines.peek()) != null && !head.at().isAfter(now)) {
+            deadlines.poll();
+            Optional<DriverLocation> location = liveLocationStore.get(head.driverUsername());
+            if (location.isEmpty() || !isActive(location.get()) || location.get().getUpdatedAt() == null) {
+                tracked.remove(head.driverUsername());
+            } else if (location.get().getUpdatedAt().isAfter(cutoff)) {
+                // Pinged since this entry was scheduled; move it to the new deadline
+                deadlines.add(new Deadline(head.driverUsername(),
+                        location.get().getUpdatedAt().plusSeconds(thresholdSeconds)));
+            } else {
+                tracked.remove(head.driverUsername());
+                expired.add(head.driverUsername());
+            }
+        }
+        return expired;
+    }
+
+    private void track(String driverUsername, LocalDateTime lastSeen) {
+        if (tracked.add(driverUsername)) {
+            deadlines.add(new Deadline(driverUsername, lastSeen.plusSeconds(thresholdSeconds)));
+        }
+    }
+
+    private boolean isActive(DriverLocation location) {
+        return "online".equals(location.getStatus()) || "active".equals(location.getStatus());
+    }
+
+    private record Deadline(String driverUsername, LocalDateTime at) implements Comparable<Deadline> {
+        @Override
+        public int compareTo(Deadline other) {
+            return at.compareTo(other.at);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.LocationPoint;
+import com.example.backend.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming per-driver track simplification applied before points reach history.
+ * Each driver has an anchor (the last kept point) and a window of points seen since.
+ * A new point extends the window while every point in it stays within the tolerance
+ * of the straight line from the anchor to the new point; once one does not, the
+ * previous point is kept and becomes the new anchor. The window is also closed after
+ * max-gap seconds or max-window points, which bounds both the replay gap and the cost
+ * of each check. Only history is simplified; the live store sees every point.
+ */
+@Component
+public class TrackSimplifier {
+
+    @Value("${location.history.simplify-tolerance-metres:10}")
+    private double toleranceMetres;
+
+    @Value("${location.history.simplify-max-gap-seconds:60}")
+    private long maxGapSeconds;
+
+    @Value("${location.history.simplify-max-window:50}")
+    private int maxWindow;
+
+    private final Map<String, Track> tracks = new ConcurrentHashMap<>();
+
+    /**
+     * Feed the next point of a driver's track, in timestamp order.
+     * Returns the points that are now final and should be persisted, usually none or one.
+     */
+    public List<LocationPoint> offer(String driverUsername, LocationPoint point) {
+        if (toleranceMetres <= 0) {
+            return List.of(point);
+        }
+
+        Track track = tracks.computeIfAbsent(driverUsername, k -> new Track());
+        synchronized (track) {
+            if (track.anchor == null) {
+                track.anchor = point;
+                return List.of(point);
+            }
+
+            if (!track.window.isEmpty() && (windowFull(track, point) || !fits(track, point))) {
+                LocationPoint kept = track.window.get(track.window.size() - 1);
+                track.anchor = kept;
+                track.window.clear();
+                track.window.add(point);
+                return List.of(kept);
+            }
+            track.window.add(point);
+            return List.of();
+        }
+    }
+
+    /**
+     * End a driver's track, e.g. when they go offline. Returns the last point
+     * seen if it has not been kept yet, so the track ends where the driver stopped.
+     */
+    public Optional<LocationPoint> finish(String driverUsername) {
+        Track track = tracks.remove(driverUsername);
+        if (track == null) {
+            return Optional.empty();
+        }
+        synchronized (track) {
+            return track.window.isEmpty()
+                    ? Optional.empty()
+                    : Optional.of(track.window.get(track.window.size() - 1));
+        }
+    }
+
+    public List<String> openTracks() {
+        return new ArrayList<>(tracks.keySet());
+    }
+
+    private boolean windowFull(Track track, LocationPoint point) {
+        return track.window.size() >= maxWindow
+                || Duration.between(track.anchor.getTimestamp(), point.getTimestamp()).getSeconds() > maxGapSeconds;
+    }
+
+    // True if every point in the window lies within tolerance of the segment anchor -> point
+    private boolean fits(Track track, LocationPoint point) {
+        LocationPoint anchor = track.anchor;
+        for (LocationPoint p : track.window) {
+            double offset = GeoUtils.distanceToSegmentMetres(p.getLatitude(), p.getLongitude(),
+                    anchor.getLatitude(), anchor.getLongitude(), point.getLatitude(), point.getLongitude());
+            if (offset > toleranceMetres) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Track {
+        private LocationPoint anchor;
+        private final List<LocationPoint> window = new ArrayList<>();
+    }
+}
@@ -0,0 +1,428 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.request.RequestTripDto;
+import com.example.backend.dto.response.TripImportResponse;
+import com.example.backend.entity.Schedule;
+import com.example.backend.entity.Trip;
+import com.example.backend.util.AggregationUtils;
+import com.example.backend.util.DateUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports trips in bulk from a CSV file or a JSON array. The file is read as a
+ * stream and handled a chunk of rows at a time: the chunk's schedules are
+ * loaded in one query, each row is checked, the valid ones are inserted with
+ * one unordered bulk write, and the income rollup and dashboard totals are
+ * updated once per chunk. Only the current chunk and the list of rejected rows
+ * are held in memory, however large the file.
+ */
+@Service
+@Slf4j
+public class TripImportService {
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "scheduleId", "date", "actualDepartureTime", "actualArrivalTime", "passengerCount", "income");
+
+    private final MongoTemplate mongoTemplate;
+    private final BatchReferenceLoader batchReferenceLoader;
+    private final IncomeRollupService incomeRollupService;
+    private final DashboardKpiCache dashboardKpiCache;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public TripImportService(MongoTemplate mongoTemplate,
+                             BatchReferenceLoader batchReferenceLoader,
+                             IncomeRollupService incomeRollupService,
+                             DashboardKpiCache dashboardKpiCache,
+                             ObjectMapper objectMapper,
+                             @Value("${import.trips.chunk-size:500}") int chunkSize,
+                             @Value("${import.trips.max-reported-errors:1000}") int maxReportedErrors) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchReferenceLoader = batchReferenceLoader;
+        this.incomeRollupService = incomeRollupService;
+        this.dashboardKpiCache = dashboardKpiCache;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Import a CSV file whose first line names the columns. scheduleId and date
+     * are required; the other trip fields are optional and may come in any order.
+     */
+    public TripImportResponse importCsv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        while (header != null && header.isBlank()) {
+            header = reader.readLine();
+        }
+        if (header == null) {
+            throw new IllegalArgumentException("The file is empty");
+        }
+        Map<String, Integer> columns = csvColumns(header);
+
+        Importer importer = new Importer();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    List<String> cells = splitCsv(line);
+                    RequestTripDto dto = new RequestTripDto(
+                            cell(cells, columns, "scheduleId"),
+                            cell(cells, columns, "date"),
+                            cell(cells, columns, "actualDepartureTime"),
+                            cell(cells, columns, "actualArrivalTime"),
+                            intCell(cells, columns, "passengerCount"),
+                            intCell(cells, columns, "income"));
+                    importer.accept(dto);
+                } catch (IllegalArgumentException e) {
+                    importer.reject(null, e.getMessage());
+                }
+            }
+            return importer.finish();
+        } catch (IOException | RuntimeException e) {
+            return importer.stop(e);
+        }
+    }
+
+    // Import a JSON array of trips shaped like the single-trip save request
+    public TripImportResponse importJson(InputStream in) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of trips");
+            }
+            Importer importer = new Importer();
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        throw new IllegalArgumentException("The JSON array is not closed");
+                    }
+                    // Each well-formed element is read on its own, so one bad row does not stop the rest;
+                    // broken JSON ends the import, since nothing after it can be located
+                    JsonNode node = objectMapper.readTree(parser);
+                    if (!node.isObject()) {
+                        importer.reject(null, "Expected a trip object");
+                        continue;
+                    }
+                    try {
+                        importer.accept(objectMapper.treeToValue(node, RequestTripDto.class));
+                    } catch (IOException | IllegalArgumentException e) {
+                        importer.reject(node.path("scheduleId").asText(null), "Invalid trip: " + e.getMessage());
+                    }
+                }
+                return importer.finish();
+            } catch (IOException | RuntimeException e) {
+                return importer.stop(e);
+            }
+        }
+    }
+
+    private static Map<String, Integer> csvColumns(String header) {
+        List<String> names = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            for (String column : CSV_COLUMNS) {
+                if (column.equalsIgnoreCase(name)) {
+                    columns.put(column, i);
+                }
+            }
+        }
+        if (!columns.containsKey("scheduleId") || !columns.containsKey("date")) {
+            throw new IllegalArgumentException("The CSV header must name the scheduleId and date columns");
+        }
+        return columns;
+    }
+
+    private static String cell(List<String> cells, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= cells.size()) {
+            return null;
+        }
+        String value = cells.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // A blank count is 0, as in the single-trip request
+    private static int intCell(List<String> cells, Map<String, Integer> columns, String column) {
+        String value = cell(cells, columns, column);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " must be a whole number, got '" + value + "'");
+        }
+    }
+
+    // One CSV line; fields may be quoted, with "" for a quote inside a quoted field
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unclosed quote");
+        }
+        cells.add(current.toString());
+        return cells;
+    }
+
+    /**
+     * Collects rows into chunks and writes each chunk as it fills.
+     * Rows are numbered in the order they arrive, valid or not.
+     */
+    private final class Importer {
+        private final List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        private final List<TripImportResponse.RowError> errors = new ArrayList<>();
+        private int received;
+        private int imported;
+        private int failed;
+        // Set once any trip has been inserted; from then on a failure is reported, not thrown
+        private boolean written;
+
+        void accept(RequestTripDto dto) {
+            chunk.add(new PendingRow(++received, dto));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(String scheduleId, String message) {
+            fail(++received, scheduleId, message);
+        }
+
+        TripImportResponse finish() {
+            flush();
+            log.info("Trip import: {} rows, {} imported, {} rejected", received, imported, failed);
+            return new TripImportResponse(received, imported, failed, errors, failed > errors.size(), null);
+        }
+
+        /**
+         * End the import on an error that stops reading or writing. Before anything
+         * is saved the error is rethrown and nothing is imported. Afterwards the rows
+         * read so far are written and the report is returned with the error, so the
+         * caller knows which rows were saved and can resume after the last received row.
+         */
+        TripImportResponse stop(Exception cause) throws IOException {
+            if (!written) {
+                chunk.clear();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw (RuntimeException) cause;
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                for (PendingRow pending : chunk) {
+                    fail(pending.row, pending.dto.getScheduleId(), "Not saved: " + e.getMessage());
+                }
+                chunk.clear();
+            }
+            String fatalError = "Import stopped after row " + received + ": " + cause.getMessage();
+            log.warn("Trip import: {} rows, {} imported, {} rejected; {}", received, imported, failed, fatalError);
+            return new TripImportResponse(received, imported, failed, errors, failed > errors.size(), fatalError);
+        }
+
+        private void fail(int row, String scheduleId, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new TripImportResponse.RowError(row, scheduleId, message));
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            Map<String, Schedule> schedules = loadSchedules(chunk);
+
+            List<PendingRow> valid = new ArrayList<>(chunk.size());
+            List<Trip> trips = new ArrayList<>(chunk.size());
+            for (PendingRow pending : chunk) {
+                String problem = validate(pending.dto, schedules);
+                if (problem != null) {
+                    fail(pending.row, pending.dto.getScheduleId(), problem);
+                    continue;
+                }
+                valid.add(pending);
+                trips.add(toTrip(pending.dto, schedules.get(pending.dto.getScheduleId().trim())));
+            }
+            chunk.clear();
+            if (trips.isEmpty()) {
+                return;
+            }
+
+            try (DailyTotalsIndex.WriteGate ignored = dashboardKpiCache.openWrite()) {
+                Set<Integer> rejected = insert(trips, valid);
+                List<Trip> inserted = new ArrayList<>(trips.size());
+                for (int i = 0; i < trips.size(); i++) {
+                    if (!rejected.contains(i)) {
+                        inserted.add(trips.get(i));
+                    }
+                }
+                imported += inserted.size();
+                written |= !inserted.isEmpty();
+                recordTotals(inserted);
+            }
+        }
+
+        // Indexes of the trips the database refused; those rows are reported as failed
+        private Set<Integer> insert(List<Trip> trips, List<PendingRow> rows) {
+            Set<Integer> rejected = new HashSet<>();
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trip.class).insert(trips).execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    rejected.add(error.getIndex());
+                    PendingRow row = rows.get(error.getIndex());
+                    fail(row.row, row.dto.getScheduleId(), "Not saved: " + error.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Trip import chunk of {} rows failed: {}", trips.size(), e.getMessage());
+                for (int i = 0; i < trips.size(); i++) {
+                    rejected.add(i);
+                    fail(rows.get(i).row, rows.get(i).dto.getScheduleId(), "Not saved: " + e.getMessage());
+                }
+            }
+            return rejected;
+        }
+    }
+
+    // The chunk's schedules, with their buses, drivers and routes, in one batched load
+    private Map<String, Schedule> loadSchedules(List<PendingRow> rows) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (PendingRow row : rows) {
+            if (row.dto.getScheduleId() != null && !row.dto.getScheduleId().isBlank()) {
+                ids.add(row.dto.getScheduleId().trim());
+            }
+        }
+        Map<String, Schedule> byId = new HashMap<>();
+        if (ids.isEmpty()) {
+            return byId;
+        }
+        List<Object> idValues = new ArrayList<>();
+        for (String id : ids) {
+            idValues.addAll(AggregationUtils.idValues(id));
+        }
+        for (Schedule schedule : batchReferenceLoader.find(new Query(Criteria.where("_id").in(idValues)), Schedule.class)) {
+            // Schedules the search text backfill has not reached yet get theirs from the loaded bus and route
+            schedule.refreshSearchText();
+            byId.put(schedule.getScheduleNumber(), schedule);
+        }
+        return byId;
+    }
+
+    // Null when the row can be saved, otherwise the reason it cannot
+    private static String validate(RequestTripDto dto, Map<String, Schedule> schedules) {
+        if (dto.getScheduleId() == null || dto.getScheduleId().isBlank()) {
+            return "scheduleId is required";
+        }
+        if (!schedules.containsKey(dto.getScheduleId().trim())) {
+            return "Schedule not found with id: " + dto.getScheduleId();
+        }
+        try {
+            if (DateUtils.parse(dto.getDate()) == null) {
+                return "date is required";
+            }
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (dto.getPassengerCount() < 0) {
+            return "passengerCount cannot be negative";
+        }
+        if (dto.getIncome() < 0) {
+            return "income cannot be negative";
+        }
+        return null;
+    }
+
+    private static Trip toTrip(RequestTripDto dto, Schedule schedule) {
+        return Trip.builder()
+                // Assigned here so a row the database refuses can be matched back to its trip
+                .id(new ObjectId().toHexString())
+                .schedule(schedule)
+                .busId(schedule.getBus() != null ? schedule.getBus().getId() : null)
+                .driverId(schedule.getBus() != null && schedule.getBus().getDriver() != null
+                        ? schedule.getBus().getDriver().getId()
+                        : null)
+                .searchText(schedule.getSearchText())
+                .date(DateUtils.parse(dto.getDate()))
+                .actualDepartureTime(dto.getActualDepartureTime())
+                .actualArrivalTime(dto.getActualArrivalTime())
+                .passengerCount(dto.getPassengerCount())
+                .income(dto.getIncome())
+                .build();
+    }
+
+    // One rollup write for the chunk and one dashboard adjustment per day
+    private void recordTotals(List<Trip> inserted) {
+        if (inserted.isEmpty()) {
+            return;
+        }
+        incomeRollupService.addAll(inserted);
+        Map<LocalDate, long[]> byDay = new HashMap<>();
+        for (Trip trip : inserted) {
+            long[] day = byDay.computeIfAbsent(trip.getDate(), d -> new long[2]);
+            day[0]++;
+            day[1] += trip.getIncome();
+        }
+        byDay.forEach((date, day) -> dashboardKpiCache.tripsAdded(date, (int) day[0], day[1]));
+    }
+
+    private record PendingRow(int row, RequestTripDto dto) {
+    }
+}
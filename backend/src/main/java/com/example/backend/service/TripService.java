@@ -11,7 +11,7 @@ public interface TripService {
     public List<ResponseTripDto> getAllTrips();
     public String updateTrip(RequestTripDto requestTripDto,String id);
     public String deleteTrip(String id);
-    public PaginatedTripDto search(String searchText, int page, int size);
-    public PaginatedTripDto searchDriverTrips(String driverId, String searchText, int page, int size);
+    public PaginatedTripDto search(String searchText, int page, int size, String cursor, boolean withCount);
+    public PaginatedTripDto searchDriverTrips(String driverId, String searchText, int page, int size, String cursor, boolean withCount);
     public ResponseTripDto findById(String id);
 }
@@ -12,7 +12,7 @@ public interface UserService {
     public boolean delete(String id);
     public ResponseUserDto findById(String id);
     public void updateById(RequestUserDto dto,String id);
-    public PaginateUserDto search(String searchText,int page,int size);
+    public PaginateUserDto search(String searchText,int page,int size,String cursor,boolean withCount);
     public Optional<User> authenticate(String username, String password);
     public void saveDriver(RequestUserDto dto);
     public User findByUsername(String username);
@@ -5,21 +5,41 @@ import com.example.backend.dto.response.AllBusesReportDto;
 import com.example.backend.dto.response.BusIncomeDto;
 import com.example.backend.dto.response.MonthlyIncomeDto;
 import com.example.backend.entity.Bus;
-import com.example.backend.entity.Schedule;
-import com.example.backend.entity.Trip;
 import com.example.backend.repository.BusRepository;
-import com.example.backend.repository.ScheduleRepository;
-import com.example.backend.repository.TripRepo;
 import com.example.backend.service.AllBusesReportService;
+import com.example.backend.service.IncomeRollupService;
+import com.example.backend.service.ReportComputePool;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
+import static com.example.backend.util.AggregationUtils.stage;
+
+/**
+ * The date range is split into runs of whole months, at most one run per
+ * worker of the report pool, and each run is aggregated by one query returning
+ * totals per month and per bus; partial results are merged pairwise as the
+ * fork/join tasks complete. A ten-year range on four workers is four queries,
+ * not one hundred and twenty. Workers waiting on the database are reported to
+ * the pool as blocked, so it can keep the other partitions moving.
+ * Bus rows are then built in parallel in bus partitions on the same pool.
+ * AllBusesReportBenchmarkTest times this against a single aggregation.
+ */
 @Service
 public class AllBusesReportServiceImpl implements AllBusesReportService {
 
@@ -27,142 +47,279 @@ public class AllBusesReportServiceImpl implements AllBusesReportService {
     private BusRepository busRepository;
 
     @Autowired
-    private ScheduleRepository scheduleRepository;
+    private MongoTemplate mongoTemplate;
 
     @Autowired
-    private TripRepo tripRepository;
+    private ReportComputePool reportComputePool;
 
     @Override
     public AllBusesReportDto getAllBusesReport(String fromDate, String toDate) {
+        return getAllBusesReport(fromDate, toDate, percent -> { });
+    }
+
+    @Override
+    public AllBusesReportDto getAllBusesReport(String fromDate, String toDate, IntConsumer progress) {
+        LocalDate startDate = LocalDate.parse(fromDate);
+        LocalDate endDate = LocalDate.parse(toDate);
+
         // Get all buses
         List<Bus> allBuses = busRepository.findAll();
-        
-        // Get all trips within date range
-        List<Trip> allTrips = tripRepository.findAll().stream()
-                .filter(trip -> {
-                    String tripDate = trip.getDate();
-                    return tripDate != null && 
-                           isDateInRange(tripDate, fromDate, toDate);
-                })
-                .collect(Collectors.toList());
+        progress.accept(10);
+
+        // Aggregate every month of the range in parallel and merge the partial totals
+        YearMonth startMonth = YearMonth.from(startDate);
+        YearMonth endMonth = YearMonth.from(endDate);
+        int months = Math.max(1, (int) ChronoUnit.MONTHS.between(startMonth, endMonth) + 1);
+        int monthsPerRun = (months + reportComputePool.getParallelism() - 1) / reportComputePool.getParallelism();
+        AtomicInteger monthsDone = new AtomicInteger();
+        PartialTotals totals = reportComputePool.invoke(new MonthRangeTask(startDate, endDate, startMonth, months, monthsPerRun,
+                done -> progress.accept(10 + 70 * monthsDone.addAndGet(done) / months)));
 
         // Generate monthly income data
-        List<MonthlyIncomeDto> monthlyIncomeData = generateMonthlyIncomeData(allTrips, fromDate, toDate);
+        List<MonthlyIncomeDto> monthlyIncomeData = generateMonthlyIncomeData(totals.byMonth(), startMonth, endMonth);
+        progress.accept(85);
 
         // Generate bus-wise income data
-        List<BusIncomeDto> busIncomeData = generateBusIncomeData(allBuses, allTrips);
+        List<BusIncomeDto> busIncomeData = reportComputePool.invoke(new BusRowsTask(allBuses, totals.byBus()));
+        // Sort by total income descending
+        busIncomeData.sort((a, b) -> b.getTotalIncome().compareTo(a.getTotalIncome()));
+        progress.accept(95);
 
         // Calculate totals
-        int totalIncome = allTrips.stream()
-                .mapToInt(Trip::getIncome)
-                .sum();
-        
-        int totalTrips = allTrips.size();
+        long totalIncome = 0;
+        long totalTrips = 0;
+        for (Totals month : totals.byMonth().values()) {
+            totalIncome += month.income();
+            totalTrips += month.trips();
+        }
 
         return AllBusesReportDto.builder()
                 .monthlyIncomeData(monthlyIncomeData)
                 .busIncomeData(busIncomeData)
                 .fromDate(fromDate)
                 .toDate(toDate)
-                .totalIncome(totalIncome)
-                .totalTrips(totalTrips)
+                .totalIncome((int) totalIncome)
+                .totalTrips((int) totalTrips)
                 .build();
     }
 
-    private List<MonthlyIncomeDto> generateMonthlyIncomeData(List<Trip> trips, String fromDate, String toDate) {
-        // Parse dates
-        LocalDate startDate = LocalDate.parse(fromDate);
-        LocalDate endDate = LocalDate.parse(toDate);
+    /**
+     * Reads the daily income rollup for part of the range and splits it into two facets:
+     * totals per month (first seven characters of the date) and totals per bus.
+     */
+    private PartialTotals aggregateRollup(LocalDate from, LocalDate to) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("date").gte(from.toString()).lte(to.toString())),
+                Aggregation.facet(groupTotalsBy(new Document("$substrBytes", List.of("$date", 0, 7))))
+                        .as("byMonth")
+                        .and(groupTotalsBy("$busId"))
+                        .as("byBus")
+        );
 
-        // Create a map to store monthly data
-        Map<String, MonthlyIncomeDto> monthlyDataMap = new TreeMap<>();
+        Document result = blocking(() -> mongoTemplate.aggregate(aggregation, IncomeRollupService.COLLECTION, Document.class)
+                .getUniqueMappedResult());
+        if (result == null) {
+            return PartialTotals.EMPTY;
+        }
+        return new PartialTotals(
+                toTotals(result.getList("byMonth", Document.class)),
+                toTotals(result.getList("byBus", Document.class)));
+    }
 
-        // Initialize all months in the range with zero values
-        YearMonth startMonth = YearMonth.from(startDate);
-        YearMonth endMonth = YearMonth.from(endDate);
-        
+    // Runs a database call on a report worker, letting the pool add a spare worker while it waits
+    private static <T> T blocking(Supplier<T> call) {
+        DatabaseCall<T> blocker = new DatabaseCall<>(call);
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the database", e);
+        }
+        return blocker.result;
+    }
+
+    private static final class DatabaseCall<T> implements ForkJoinPool.ManagedBlocker {
+        private final Supplier<T> call;
+        private T result;
+        private boolean done;
+
+        private DatabaseCall(Supplier<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public boolean block() {
+            result = call.get();
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    private AggregationOperation groupTotalsBy(Object key) {
+        return stage("$group", new Document("_id", key)
+                .append("totalIncome", new Document("$sum", "$income"))
+                .append("totalTrips", new Document("$sum", "$tripCount")));
+    }
+
+    private Map<String, Totals> toTotals(List<Document> rows) {
+        Map<String, Totals> totals = new HashMap<>();
+        for (Document row : rows) {
+            if (row.get("_id") != null) {
+                totals.put(row.get("_id").toString(), new Totals(longValue(row, "totalIncome"), longValue(row, "totalTrips")));
+            }
+        }
+        return totals;
+    }
+
+    private List<MonthlyIncomeDto> generateMonthlyIncomeData(Map<String, Totals> byMonth, YearMonth startMonth, YearMonth endMonth) {
+        List<MonthlyIncomeDto> monthlyData = new ArrayList<>();
+
+        // Every month in the range, with zero values where there were no trips
         YearMonth currentMonth = startMonth;
         while (!currentMonth.isAfter(endMonth)) {
             String monthKey = currentMonth.toString(); // YYYY-MM format
-            String monthName = currentMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy"));
-            
-            monthlyDataMap.put(monthKey, MonthlyIncomeDto.builder()
+            Totals totals = byMonth.getOrDefault(monthKey, Totals.ZERO);
+
+            monthlyData.add(MonthlyIncomeDto.builder()
                     .month(monthKey)
-                    .monthName(monthName)
-                    .totalIncome(0)
-                    .totalTrips(0)
+                    .monthName(currentMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy")))
+                    .totalIncome((int) totals.income())
+                    .totalTrips((int) totals.trips())
                     .build());
-            
+
             currentMonth = currentMonth.plusMonths(1);
         }
 
-        // Populate with actual trip data
-        for (Trip trip : trips) {
-            if (trip.getDate() != null) {
-                LocalDate tripDate = LocalDate.parse(trip.getDate());
-                YearMonth tripMonth = YearMonth.from(tripDate);
-                String monthKey = tripMonth.toString();
+        return monthlyData;
+    }
+
+    private static long longValue(Document row, String field) {
+        Object value = row.get(field);
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    private record Totals(long income, long trips) {
+        static final Totals ZERO = new Totals(0, 0);
+
+        Totals plus(Totals other) {
+            return new Totals(income + other.income, trips + other.trips);
+        }
+    }
+
+    private record PartialTotals(Map<String, Totals> byMonth, Map<String, Totals> byBus) {
+        static final PartialTotals EMPTY = new PartialTotals(Map.of(), Map.of());
 
-                if (monthlyDataMap.containsKey(monthKey)) {
-                    MonthlyIncomeDto monthData = monthlyDataMap.get(monthKey);
-                    monthData.setTotalIncome(monthData.getTotalIncome() + trip.getIncome());
-                    monthData.setTotalTrips(monthData.getTotalTrips() + 1);
-                }
-            }
+        PartialTotals merge(PartialTotals other) {
+            return new PartialTotals(mergeMaps(byMonth, other.byMonth), mergeMaps(byBus, other.byBus));
         }
 
-        return new ArrayList<>(monthlyDataMap.values());
+        private static Map<String, Totals> mergeMaps(Map<String, Totals> a, Map<String, Totals> b) {
+            Map<String, Totals> merged = new HashMap<>(a);
+            b.forEach((key, totals) -> merged.merge(key, totals, Totals::plus));
+            return merged;
+        }
     }
 
-    private List<BusIncomeDto> generateBusIncomeData(List<Bus> buses, List<Trip> allTrips) {
-        List<BusIncomeDto> busIncomeList = new ArrayList<>();
+    /**
+     * Aggregates a run of months, halving it until it is no longer than one
+     * partition, which is read from the database in one query. The first and
+     * last months are clipped to the range.
+     */
+    private class MonthRangeTask extends RecursiveTask<PartialTotals> {
+        private final LocalDate rangeStart;
+        private final LocalDate rangeEnd;
+        private final YearMonth firstMonth;
+        private final int months;
+        private final int monthsPerRun;
+        private final IntConsumer onMonthsDone;
 
-        // Get all schedules
-        List<Schedule> allSchedules = scheduleRepository.findAll();
+        private MonthRangeTask(LocalDate rangeStart, LocalDate rangeEnd, YearMonth firstMonth, int months,
+                               int monthsPerRun, IntConsumer onMonthsDone) {
+            this.rangeStart = rangeStart;
+            this.rangeEnd = rangeEnd;
+            this.firstMonth = firstMonth;
+            this.months = months;
+            this.monthsPerRun = monthsPerRun;
+            this.onMonthsDone = onMonthsDone;
+        }
 
-        // Create a map of busId to schedule IDs
-        Map<String, List<String>> busToScheduleMap = new HashMap<>();
-        for (Schedule schedule : allSchedules) {
-            if (schedule.getBus() != null) {
-                String busId = schedule.getBus().getId();
-                busToScheduleMap
-                        .computeIfAbsent(busId, k -> new ArrayList<>())
-                        .add(schedule.getScheduleNumber());
+        @Override
+        protected PartialTotals compute() {
+            if (months <= monthsPerRun) {
+                LocalDate from = max(rangeStart, firstMonth.atDay(1));
+                LocalDate to = min(rangeEnd, firstMonth.plusMonths(months - 1).atEndOfMonth());
+                PartialTotals totals = aggregateRollup(from, to);
+                onMonthsDone.accept(months);
+                return totals;
             }
+            // Split on a run boundary so no query covers less than a full run
+            int half = (months / monthsPerRun + 1) / 2 * monthsPerRun;
+            MonthRangeTask left = new MonthRangeTask(rangeStart, rangeEnd, firstMonth, half, monthsPerRun, onMonthsDone);
+            MonthRangeTask right = new MonthRangeTask(rangeStart, rangeEnd, firstMonth.plusMonths(half), months - half,
+                    monthsPerRun, onMonthsDone);
+            left.fork();
+            PartialTotals rightTotals = right.compute();
+            return left.join().merge(rightTotals);
         }
 
-        // Calculate income for each bus
-        for (Bus bus : buses) {
-            List<String> scheduleIds = busToScheduleMap.getOrDefault(bus.getId(), new ArrayList<>());
-            
-            // Filter trips for this bus
-            List<Trip> busTrips = allTrips.stream()
-                    .filter(trip -> trip.getSchedule() != null && 
-                                  scheduleIds.contains(trip.getSchedule().getScheduleNumber()))
-                    .collect(Collectors.toList());
-
-            int totalIncome = busTrips.stream()
-                    .mapToInt(Trip::getIncome)
-                    .sum();
-
-            busIncomeList.add(BusIncomeDto.builder()
-                    .busId(bus.getId())
-                    .busNumber(bus.getBusNumber())
-                    .busModel(bus.getModel())
-                    .driverName(bus.getDriver() != null ? bus.getDriver().getName() : "N/A")
-                    .totalTrips(busTrips.size())
-                    .totalIncome(totalIncome)
-                    .build());
+        private LocalDate max(LocalDate a, LocalDate b) {
+            return a.isAfter(b) ? a : b;
         }
 
-        // Sort by total income descending
-        busIncomeList.sort((a, b) -> b.getTotalIncome().compareTo(a.getTotalIncome()));
-
-        return busIncomeList;
+        private LocalDate min(LocalDate a, LocalDate b) {
+            return a.isBefore(b) ? a : b;
+        }
     }
 
-    private boolean isDateInRange(String tripDate, String fromDate, String toDate) {
-        if (tripDate == null) return false;
-        return tripDate.compareTo(fromDate) >= 0 && tripDate.compareTo(toDate) <= 0;
+    /**
+     * Builds one income row per bus, halving the bus list until a partition is
+     * small enough to build directly.
+     */
+    private static class BusRowsTask extends RecursiveTask<List<BusIncomeDto>> {
+        private static final int PARTITION_SIZE = 64;
+
+        private final List<Bus> buses;
+        private final Map<String, Totals> byBus;
+
+        private BusRowsTask(List<Bus> buses, Map<String, Totals> byBus) {
+            this.buses = buses;
+            this.byBus = byBus;
+        }
+
+        @Override
+        protected List<BusIncomeDto> compute() {
+            if (buses.size() <= PARTITION_SIZE) {
+                return rows();
+            }
+            int half = buses.size() / 2;
+            BusRowsTask left = new BusRowsTask(buses.subList(0, half), byBus);
+            BusRowsTask right = new BusRowsTask(buses.subList(half, buses.size()), byBus);
+            left.fork();
+            List<BusIncomeDto> rightRows = right.compute();
+            List<BusIncomeDto> rows = new ArrayList<>(left.join());
+            rows.addAll(rightRows);
+            return rows;
+        }
+
+        private List<BusIncomeDto> rows() {
+            List<BusIncomeDto> rows = new ArrayList<>(buses.size());
+            for (Bus bus : buses) {
+                Totals totals = byBus.getOrDefault(bus.getId(), Totals.ZERO);
+                rows.add(BusIncomeDto.builder()
+                        .busId(bus.getId())
+                        .busNumber(bus.getBusNumber())
+                        .busModel(bus.getModel())
+                        .driverName(bus.getDriver() != null ? bus.getDriver().getName() : "N/A")
+                        .totalTrips((int) totals.trips())
+                        .totalIncome((int) totals.income())
+                        .build());
+            }
+            return rows;
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,18 +4,31 @@ package com.example.backend.service.impl;
 
 import com.example.backend.dto.response.BusReportDto;
 import com.example.backend.entity.Bus;
-import com.example.backend.entity.Schedule;
+import com.example.backend.entity.Route;
 import com.example.backend.entity.Trip;
 import com.example.backend.repository.BusRepository;
-import com.example.backend.repository.ScheduleRepository;
-import com.example.backend.repository.TripRepo;
+import com.example.backend.repository.RouteRepository;
 import com.example.backend.service.BusReportService;
+import com.example.backend.util.DocumentRefs;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
+import static com.example.backend.util.AggregationUtils.idValues;
+
+/**
+ * Report for a single bus. Every step is an indexed lookup: the bus by number,
+ * its schedules by bus reference, then its trips by schedule and date range,
+ * so the cost follows the size of that bus's history rather than the fleet's.
+ */
 @Service
 public class BusReportServiceImpl implements BusReportService {
 
@@ -23,10 +36,10 @@ public class BusReportServiceImpl implements BusReportService {
     private BusRepository busRepository;
 
     @Autowired
-    private ScheduleRepository scheduleRepository;
+    private RouteRepository routeRepository;
 
     @Autowired
-    private TripRepo tripRepository;
+    private MongoTemplate mongoTemplate;
 
     @Override
     public BusReportDto getBusReport(String busNumber, String fromDate, String toDate) {
@@ -34,40 +47,36 @@ public class BusReportServiceImpl implements BusReportService {
         Bus bus = busRepository.findByBusNumber(busNumber)
                 .orElseThrow(() -> new RuntimeException("Bus not found with bus number: " + busNumber));
 
-        // Get all schedules for this bus
-        List<Schedule> schedules = scheduleRepository.findAll().stream()
-                .filter(schedule -> schedule.getBus() != null && 
-                        schedule.getBus().getId().equals(bus.getId()))
-                .collect(Collectors.toList());
-
-        // Get schedule IDs
-        List<String> scheduleIds = schedules.stream()
-                .map(Schedule::getScheduleNumber)
-                .collect(Collectors.toList());
-
-        // Get all trips for these schedules within the date range
-        List<Trip> trips = tripRepository.findAll().stream()
-                .filter(trip -> {
-                    if (trip.getSchedule() == null) return false;
-                    
-                    String scheduleId = trip.getSchedule().getScheduleNumber();
-                    String tripDate = trip.getDate();
-                    
-                    boolean isInSchedule = scheduleIds.contains(scheduleId);
-                    boolean isInDateRange = isDateInRange(tripDate, fromDate, toDate);
-                    
-                    return isInSchedule && isInDateRange;
-                })
-                .collect(Collectors.toList());
-
-        // Calculate total income
-        int totalIncome = trips.stream()
-                .mapToInt(Trip::getIncome)
-                .sum();
+        LocalDate from = LocalDate.parse(fromDate);
+        LocalDate to = LocalDate.parse(toDate);
+
+        // Schedule ids and route refs of this bus only, without resolving any references
+        Query scheduleQuery = new Query(Criteria.where("busId.$id").in(idValues(bus.getId())));
+        scheduleQuery.fields().include("_id").include("routeId");
+        List<Document> schedules = mongoTemplate.find(scheduleQuery, Document.class, "schedules");
+
+        List<Object> scheduleIds = schedules.stream()
+                .map(schedule -> schedule.get("_id"))
+                .toList();
+
+        // Trip count and income for these schedules within the date range, summed on the server
+        int totalTrips = 0;
+        int totalIncome = 0;
+        if (!scheduleIds.isEmpty()) {
+            TypedAggregation<Trip> aggregation = Aggregation.newAggregation(Trip.class,
+                    Aggregation.match(Criteria.where("schedule.$id").in(scheduleIds)
+                            .and("date").gte(from).lte(to)),
+                    Aggregation.group().count().as("trips").sum("income").as("income")
+            );
+            Document totals = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+            if (totals != null) {
+                totalTrips = intValue(totals.get("trips"));
+                totalIncome = intValue(totals.get("income"));
+            }
+        }
 
         // Get route information from the first schedule (assuming all schedules have the same route)
-        String routeName = schedules.isEmpty() ? "N/A" : 
-                (schedules.get(0).getRoute() != null ? schedules.get(0).getRoute().getRouteName() : "N/A");
+        String routeName = schedules.isEmpty() ? "N/A" : routeName(schedules.get(0).get("routeId"));
 
         // Build and return the report
         return BusReportDto.builder()
@@ -79,17 +88,24 @@ public class BusReportServiceImpl implements BusReportService {
                 .driverName(bus.getDriver() != null ? bus.getDriver().getName() : "N/A")
                 .status(bus.getStatus())
                 .lastServiceDate("N/A") // You can add this field to Bus entity if needed
-                .totalTrips(trips.size())
+                .totalTrips(totalTrips)
                 .totalIncome(totalIncome)
                 .fromDate(fromDate)
                 .toDate(toDate)
                 .build();
     }
 
-    private boolean isDateInRange(String tripDate, String fromDate, String toDate) {
-        if (tripDate == null) return false;
-        
-        // Simple string comparison (works for YYYY-MM-DD format)
-        return tripDate.compareTo(fromDate) >= 0 && tripDate.compareTo(toDate) <= 0;
+    private String routeName(Object routeRef) {
+        String routeId = DocumentRefs.idOf(routeRef);
+        if (routeId == null) {
+            return "N/A";
+        }
+        return routeRepository.findById(routeId)
+                .map(Route::getRouteName)
+                .orElse("N/A");
+    }
+
+    private int intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
     }
 }
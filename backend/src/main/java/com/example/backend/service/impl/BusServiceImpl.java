@@ -8,7 +8,12 @@ import com.example.backend.entity.Bus;
 import com.example.backend.entity.User;
 import com.example.backend.repository.BusRepository;
 import com.example.backend.repository.UserRepo;
+import com.example.backend.service.AssignmentKeyService;
+import com.example.backend.service.BatchReferenceLoader;
 import com.example.backend.service.BusService;
+import com.example.backend.service.DashboardKpiCache;
+import com.example.backend.service.DriverAssignmentCache;
+import com.example.backend.service.SearchTextService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -24,11 +29,21 @@ public class BusServiceImpl implements BusService {
 
     private final BusRepository busRepository;
     private final UserRepo userRepository;
+    private final DriverAssignmentCache driverAssignmentCache;
+    private final DashboardKpiCache dashboardKpiCache;
+    private final AssignmentKeyService assignmentKeyService;
+    private final BatchReferenceLoader batchReferenceLoader;
+    private final SearchTextService searchTextService;
 
     @Autowired
-    public BusServiceImpl(BusRepository busRepository, UserRepo userRepository) {
+    public BusServiceImpl(BusRepository busRepository, UserRepo userRepository, DriverAssignmentCache driverAssignmentCache, DashboardKpiCache dashboardKpiCache, AssignmentKeyService assignmentKeyService, BatchReferenceLoader batchReferenceLoader, SearchTextService searchTextService) {
         this.busRepository = busRepository;
         this.userRepository = userRepository;
+        this.driverAssignmentCache = driverAssignmentCache;
+        this.dashboardKpiCache = dashboardKpiCache;
+        this.assignmentKeyService = assignmentKeyService;
+        this.batchReferenceLoader = batchReferenceLoader;
+        this.searchTextService = searchTextService;
     }
 
     @Override
@@ -51,12 +66,14 @@ public class BusServiceImpl implements BusService {
         }
 
         Bus savedBus = busRepository.save(bus);
+        driverAssignmentCache.invalidateDriverOf(savedBus);
+        dashboardKpiCache.invalidateFleetCounts();
         return convertToResponseDto(savedBus);
     }
 
     @Override
     public List<BusResponseDto> getAllBuses() {
-        List<Bus> buses = busRepository.findAll();
+        List<Bus> buses = batchReferenceLoader.findAll(Bus.class);
         return buses.stream()
                 .map(this::convertToResponseDto)
                 .collect(Collectors.toList());
@@ -87,6 +104,11 @@ public class BusServiceImpl implements BusService {
             throw new RuntimeException("Bus number already exists: " + busRequestDto.getBusNumber());
         }
 
+        // The previous driver loses this bus (or sees a new number), so drop their cached assignment
+        driverAssignmentCache.invalidateDriverOf(existingBus);
+        String previousBusNumber = existingBus.getBusNumber();
+        String previousDriverId = existingBus.getDriver() != null ? existingBus.getDriver().getId() : null;
+
         existingBus.setBusNumber(busRequestDto.getBusNumber());
         existingBus.setCapacity(busRequestDto.getCapacity());
         existingBus.setModel(busRequestDto.getModel());
@@ -102,15 +124,19 @@ public class BusServiceImpl implements BusService {
 
         existingBus.updateTimestamp();
         Bus updatedBus = busRepository.save(existingBus);
+        driverAssignmentCache.invalidateDriverOf(updatedBus);
+        assignmentKeyService.busDriverChanged(updatedBus, previousDriverId);
+        searchTextService.busChanged(updatedBus, previousBusNumber);
         return convertToResponseDto(updatedBus);
     }
 
     @Override
     public void deleteBus(String id) {
-        if (!busRepository.existsById(id)) {
-            throw new RuntimeException("Bus not found with ID: " + id);
-        }
+        Bus bus = busRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Bus not found with ID: " + id));
         busRepository.deleteById(id);
+        driverAssignmentCache.invalidateDriverOf(bus);
+        dashboardKpiCache.invalidateFleetCounts();
     }
 
     @Override
@@ -198,21 +224,8 @@ public class BusServiceImpl implements BusService {
     //service implementation for get busnumber by username oshan(10/14)
     @Override
     public String getBusNumberForUsername(String username){
-        User user = userRepository.findByUsername(username)
-                .orElse(null);
-
-        if (user == null) {
-            System.out.println("No user found for username: " + username);
-            return null;
-        }
-
-        Bus bus = busRepository.findBusesByDriverId(user.getId());
-        if (bus == null) {
-            System.out.println("No bus assigned to user: " + username);
-            return null;
-        }
-
-        return bus.getBusNumber();
+        // Served from the assignment cache; null when the user is unknown or has no bus
+        return driverAssignmentCache.getBusNumber(username);
     }
 
     @Override
@@ -1,18 +1,19 @@
 package com.example.backend.service.impl;
 
 import com.example.backend.dto.response.ResponseDashboardDto;
-import com.example.backend.entity.MaintenanceLog;
-import com.example.backend.entity.Trip;
 import com.example.backend.repository.*;
+import com.example.backend.service.DailyTotalsIndex;
+import com.example.backend.service.DashboardKpiCache;
 import com.example.backend.service.DashboardService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.YearMonth;
-import java.util.List;
+import java.util.Map;
 
 @Service
+@Slf4j
 public class DashboardServiceImpl implements DashboardService {
 
     @Autowired
@@ -26,86 +27,53 @@ public class DashboardServiceImpl implements DashboardService {
     @Autowired
     private TripRepo tripRepo;
     @Autowired
-    private MaintenanceLogRepository maintenanceRepo;
+    private DailyTotalsIndex dailyTotalsIndex;
+    @Autowired
+    private DashboardKpiCache dashboardKpiCache;
 
     @Override
     public ResponseDashboardDto getDashboardStats(String period) {
+        return dashboardKpiCache.get(period, this::loadPeriodTotals, this::loadFleetCounts);
+    }
 
-        // --- Get all data ---
-        List<Trip> trips = tripRepo.findAll();
-        List<MaintenanceLog> maintenanceLogs = maintenanceRepo.findAll();
-
-        // --- Determine date range ---
-        LocalDate today = LocalDate.now();
-        LocalDate startDate;
-        LocalDate endDate;
-
-        switch (period.toLowerCase()) {
-            case "this_month":
-                YearMonth thisMonth = YearMonth.now();
-                startDate = thisMonth.atDay(1);
-                endDate = thisMonth.atEndOfMonth();
-                break;
-            case "last_month":
-                YearMonth lastMonth = YearMonth.now().minusMonths(1);
-                startDate = lastMonth.atDay(1);
-                endDate = lastMonth.atEndOfMonth();
-                break;
-            case "today":
-            default:
-                startDate = today;
-                endDate = today;
-        }
-
-        double totalIncome = trips.stream()
-                .filter(t -> {
-                    try {
-                        LocalDate tripDate = LocalDate.parse(t.getDate());
-                        return !tripDate.isBefore(startDate) && !tripDate.isAfter(endDate);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .mapToDouble(Trip::getIncome)
-                .sum();
-
-        double totalMaintenance = maintenanceLogs.stream()
-                .filter(m -> {
-                    try {
-                        LocalDate mDate = LocalDate.parse(m.getMaintenanceDate());
-                        return !mDate.isBefore(startDate) && !mDate.isAfter(endDate);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .mapToDouble(MaintenanceLog::getCost)
-                .sum();
+    @Override
+    public ResponseDashboardDto getDashboardStats(LocalDate from, LocalDate to) {
+        // Arbitrary ranges are not cached per range; the index answers them directly
+        DailyTotalsIndex.RangeTotals totals = dailyTotalsIndex.sum(from, to);
+        DashboardKpiCache.FleetCounts counts = dashboardKpiCache.getFleetCounts(this::loadFleetCounts);
+        return new ResponseDashboardDto(
+                counts.buses(),
+                counts.drivers(),
+                counts.routes(),
+                counts.schedules(),
+                tripRepo.count(),
+                totals.income(),
+                totals.maintenance(),
+                totals.income() - totals.maintenance()
+        );
+    }
 
-        System.out.println("Period: " + period);
-        System.out.println("Start Date: " + startDate);
-        System.out.println("End Date: " + endDate);
-        System.out.println("Total Income (Filtered): " + totalIncome);
-        System.out.println("Total Maintenance (Filtered): " + totalMaintenance);
-        System.out.println("Profit: " + (totalIncome - totalMaintenance));
+    @Override
+    public Map<String, Long> getCacheStats() {
+        return dashboardKpiCache.getStats();
+    }
 
-        long totalBuses = busRepo.count();
-        long totalDrivers = userRepo.findByRolesContaining("DRIVER").size();
-        long totalRoutes = routeRepo.count();
-        long totalSchedules = scheduleRepo.count();
-        long totalTrips = trips.size();
+    private DashboardKpiCache.PeriodTotals loadPeriodTotals(DashboardKpiCache.Window window) {
+        // Income and maintenance cost come from the daily totals index, two lookups per figure
+        DailyTotalsIndex.RangeTotals totals = dailyTotalsIndex.sum(window.start(), window.end());
+        long totalTrips = tripRepo.count();
 
-        double profit = totalIncome - totalMaintenance;
+        log.debug("Loaded dashboard totals for {} ({} to {}): income {}, maintenance {}",
+                window.period(), window.start(), window.end(), totals.income(), totals.maintenance());
+        return new DashboardKpiCache.PeriodTotals(window, totalTrips, totals.income(), totals.maintenance());
+    }
 
-        return new ResponseDashboardDto(
-                totalBuses,
-                totalDrivers,
-                totalRoutes,
-                totalSchedules,
-                totalTrips,
-                totalIncome,
-                totalMaintenance,
-                profit
+    private DashboardKpiCache.FleetCounts loadFleetCounts() {
+        return new DashboardKpiCache.FleetCounts(
+                busRepo.count(),
+                userRepo.countByRolesContaining("DRIVER"),
+                routeRepo.count(),
+                scheduleRepo.count()
         );
     }
 }
-
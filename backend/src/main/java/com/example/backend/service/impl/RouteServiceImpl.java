@@ -5,9 +5,12 @@ import com.example.backend.dto.request.RouteRequestDto;
 import com.example.backend.dto.response.RouteResponseDto;
 import com.example.backend.entity.Route;
 import com.example.backend.repository.RouteRepository;
+import com.example.backend.service.DashboardKpiCache;
+import com.example.backend.service.KeysetPager;
 import com.example.backend.service.RouteService;
+import com.example.backend.service.SearchTextService;
 import org.springframework.beans.factory.annotation.Autowired;
-//import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 //import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -18,10 +21,16 @@ import java.util.stream.Collectors;
 public class RouteServiceImpl implements RouteService {
 
     private final RouteRepository routeRepository;
+    private final DashboardKpiCache dashboardKpiCache;
+    private final SearchTextService searchTextService;
+    private final KeysetPager keysetPager;
 
     @Autowired
-    public RouteServiceImpl(RouteRepository routeRepository) {
+    public RouteServiceImpl(RouteRepository routeRepository, DashboardKpiCache dashboardKpiCache, SearchTextService searchTextService, KeysetPager keysetPager) {
         this.routeRepository = routeRepository;
+        this.dashboardKpiCache = dashboardKpiCache;
+        this.searchTextService = searchTextService;
+        this.keysetPager = keysetPager;
     }
 
     @Override
@@ -38,6 +47,7 @@ public class RouteServiceImpl implements RouteService {
         route.setDistance(routeRequestDto.getDistance());
 
         Route savedRoute = routeRepository.save(route);
+        dashboardKpiCache.invalidateFleetCounts();
         return convertToResponseDto(savedRoute);
     }
 
@@ -74,6 +84,10 @@ public class RouteServiceImpl implements RouteService {
             throw new RuntimeException("Route name already exists: " + routeRequestDto.getRouteName());
         }
 
+        String previousName = existingRoute.getRouteName();
+        String previousStart = existingRoute.getStartingPoint();
+        String previousEnd = existingRoute.getEndingPoint();
+
         existingRoute.setRouteName(routeRequestDto.getRouteName());
         existingRoute.setStartingPoint(routeRequestDto.getStartingPoint());
         existingRoute.setEndingPoint(routeRequestDto.getEndingPoint());
@@ -81,6 +95,7 @@ public class RouteServiceImpl implements RouteService {
         existingRoute.updateTimestamp();
 
         Route updatedRoute = routeRepository.save(existingRoute);
+        searchTextService.routeChanged(updatedRoute, previousName, previousStart, previousEnd);
         return convertToResponseDto(updatedRoute);
     }
 
@@ -90,19 +105,14 @@ public class RouteServiceImpl implements RouteService {
             throw new RuntimeException("Route not found with ID: " + id);
         }
         routeRepository.deleteById(id);
+        dashboardKpiCache.invalidateFleetCounts();
     }
 
     @Override
     public List<RouteResponseDto> searchRoutes(String searchTerm, int page, int size) {
-        List<Route> routes = routeRepository.searchRoutes(searchTerm);
-        
-        // Apply pagination manually
-        List<Route> paginatedRoutes = routes.stream()
-                .skip((long) page * size)
-                .limit(size)
-                .collect(Collectors.toList());
+        List<Route> routes = keysetPager.search(searchTerm, Sort.by("routeName"), null, page, size, false, Route.class).content();
 
-        return paginatedRoutes.stream()
+        return routes.stream()
                 .map(this::convertToResponseDto)
                 .collect(Collectors.toList());
     }
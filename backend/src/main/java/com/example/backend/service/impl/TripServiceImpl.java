@@ -8,26 +8,46 @@ import com.example.backend.entity.Trip;
 import com.example.backend.exception.EntryNotFoundException;
 import com.example.backend.repository.ScheduleRepository;
 import com.example.backend.repository.TripRepo;
+import com.example.backend.service.BatchReferenceLoader;
+import com.example.backend.service.DailyTotalsIndex;
+import com.example.backend.service.DashboardKpiCache;
+import com.example.backend.service.IncomeRollupService;
+import com.example.backend.service.KeysetPager;
 import com.example.backend.service.TripService;
+import com.example.backend.util.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
-import java.util.Collections;
 
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class TripServiceImpl implements TripService {
 
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "date", "_id");
+
     @Autowired
     private TripRepo tripRepo;
 
     @Autowired
     private ScheduleRepository scheduleRepo;
 
+    @Autowired
+    private IncomeRollupService incomeRollupService;
+
+    @Autowired
+    private DashboardKpiCache dashboardKpiCache;
+
+    @Autowired
+    private BatchReferenceLoader batchReferenceLoader;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
     @Override
     public String saveTrip(RequestTripDto requestTripDto) {
         Schedule schedule = scheduleRepo.findById(requestTripDto.getScheduleId())
@@ -35,20 +55,27 @@ public class TripServiceImpl implements TripService {
 
         Trip trip = Trip.builder()
                 .schedule(schedule)
-                .date(requestTripDto.getDate())
+                .busId(busIdOf(schedule))
+                .driverId(driverIdOf(schedule))
+                .searchText(schedule.getSearchText())
+                .date(DateUtils.parse(requestTripDto.getDate()))
                 .actualDepartureTime(requestTripDto.getActualDepartureTime())
                 .actualArrivalTime(requestTripDto.getActualArrivalTime())
                 .passengerCount(requestTripDto.getPassengerCount())
                 .income(requestTripDto.getIncome())
                 .build();
 
-        tripRepo.save(trip);
+        try (DailyTotalsIndex.WriteGate ignored = dashboardKpiCache.openWrite()) {
+            tripRepo.save(trip);
+            incomeRollupService.add(trip);
+            dashboardKpiCache.tripAdded(trip.getDate(), trip.getIncome());
+        }
         return trip.getId();
     }
 
     @Override
     public List<ResponseTripDto> getAllTrips() {
-        List<Trip> trips = tripRepo.findAll();
+        List<Trip> trips = batchReferenceLoader.findAll(Trip.class);
         return trips.stream()
                 .map(this::toResponseTripDto)
                 .collect(Collectors.toList());
@@ -62,90 +89,66 @@ public class TripServiceImpl implements TripService {
         Schedule schedule = scheduleRepo.findById(requestTripDto.getScheduleId())
                 .orElseThrow(() -> new EntryNotFoundException("Schedule not found with id: " + requestTripDto.getScheduleId()));
 
+        IncomeRollupService.Contribution before = IncomeRollupService.Contribution.of(trip);
+
         trip.setSchedule(schedule);
-        trip.setDate(requestTripDto.getDate());
+        trip.setBusId(busIdOf(schedule));
+        trip.setDriverId(driverIdOf(schedule));
+        trip.setSearchText(schedule.getSearchText());
+        trip.setDate(DateUtils.parse(requestTripDto.getDate()));
         trip.setActualDepartureTime(requestTripDto.getActualDepartureTime());
         trip.setActualArrivalTime(requestTripDto.getActualArrivalTime());
         trip.setPassengerCount(requestTripDto.getPassengerCount());
         trip.setIncome(requestTripDto.getIncome());
 
-        Trip updatedTrip = tripRepo.save(trip);
-        return updatedTrip.getId();
+        try (DailyTotalsIndex.WriteGate ignored = dashboardKpiCache.openWrite()) {
+            Trip updatedTrip = tripRepo.save(trip);
+            incomeRollupService.replace(before, updatedTrip);
+            dashboardKpiCache.tripChanged(before.date(), before.income(), updatedTrip.getDate(), updatedTrip.getIncome());
+            return updatedTrip.getId();
+        }
     }
 
     @Override
     public String deleteTrip(String id) {
-        if (!tripRepo.existsById(id)) {
-            throw new EntryNotFoundException("Trip not found with id: " + id);
+        Trip trip = tripRepo.findById(id)
+                .orElseThrow(() -> new EntryNotFoundException("Trip not found with id: " + id));
+        try (DailyTotalsIndex.WriteGate ignored = dashboardKpiCache.openWrite()) {
+            tripRepo.deleteById(id);
+            incomeRollupService.remove(IncomeRollupService.Contribution.of(trip));
+            dashboardKpiCache.tripRemoved(trip.getDate(), trip.getIncome());
         }
-        tripRepo.deleteById(id);
         return "Trip deleted successfully with id: " + id;
     }
 
     @Override
-    public PaginatedTripDto search(String searchText, int page, int size) {
-        Page<Trip> tripPage = tripRepo.searchAll(searchText, PageRequest.of(page, size));
-
-        return PaginatedTripDto.builder()
-                .dataList(tripPage.stream()
-                        .map(this::toResponseTripDto)
-                        .collect(Collectors.toList()))
-                .count(tripPage.getTotalElements())
-                .build();
+    public PaginatedTripDto search(String searchText, int page, int size, String cursor, boolean withCount) {
+        // A date finds that day's trips on the date index; anything else goes to the text index
+        LocalDate date = searchText != null ? DateUtils.tryParse(searchText.trim()) : null;
+        KeysetPager.Slice<Trip> slice = date != null
+                ? keysetPager.find(Criteria.where("date").is(date), NEWEST_FIRST, cursor, page, size, withCount, Trip.class)
+                : keysetPager.search(searchText, NEWEST_FIRST, cursor, page, size, withCount, Trip.class);
+        return toPaginatedTripDto(slice);
     }
 
-    // TripServiceImpl.java - Updated searchDriverTrips method only
-// No changes to repositories needed!
-
     @Override
-    public PaginatedTripDto searchDriverTrips(String driverId, String searchText, int page, int size) {
-
-        // 1️⃣ Get ALL schedules from database
-        List<Schedule> allSchedules = scheduleRepo.findAll();
-        System.out.println("Total schedules in DB: " + allSchedules.size());
-
-        // 2️⃣ Filter schedules where the bus driver matches our driverId
-        List<String> scheduleIds = allSchedules.stream()
-                .filter(schedule -> {
-                    if (schedule.getBus() != null && schedule.getBus().getDriver() != null) {
-                        String scheduleDriverId = schedule.getBus().getDriver().getId();
-                        System.out.println("Checking schedule: " + schedule.getScheduleNumber() +
-                                ", driver: " + scheduleDriverId +
-                                ", matches: " + scheduleDriverId.equals(driverId));
-                        return scheduleDriverId.equals(driverId);
-                    }
-                    return false;
-                })
-                .map(Schedule::getScheduleNumber)
-                .collect(Collectors.toList());
-
-        System.out.println("Filtered schedule IDs for driver " + driverId + ": " + scheduleIds);
-
-        if (scheduleIds.isEmpty()) {
-            return PaginatedTripDto.builder()
-                    .dataList(Collections.emptyList())
-                    .count(0)
-                    .build();
-        }
-
-        // 3️⃣ Get trips for those schedules
-        Page<Trip> tripPage = tripRepo.findAllByScheduleIds(scheduleIds, PageRequest.of(page, size));
-
-        System.out.println("Found " + tripPage.getTotalElements() + " trips");
-
-        // 4️⃣ Convert to DTOs
-        List<ResponseTripDto> trips = tripPage.stream()
-                .map(this::toResponseTripDto)
-                .collect(Collectors.toList());
+    public PaginatedTripDto searchDriverTrips(String driverId, String searchText, int page, int size, String cursor, boolean withCount) {
+        // One indexed query on the driver id copied onto each trip, newest first
+        KeysetPager.Slice<Trip> slice = keysetPager.find(Criteria.where("driverId").is(driverId),
+                NEWEST_FIRST, cursor, page, size, withCount, Trip.class);
+        return toPaginatedTripDto(slice);
+    }
 
+    private PaginatedTripDto toPaginatedTripDto(KeysetPager.Slice<Trip> slice) {
         return PaginatedTripDto.builder()
-                .dataList(trips)
-                .count(tripPage.getTotalElements())
+                .dataList(slice.content().stream()
+                        .map(this::toResponseTripDto)
+                        .collect(Collectors.toList()))
+                .count(slice.total())
+                .nextCursor(slice.nextCursor())
                 .build();
     }
 
-
-
     @Override
     public ResponseTripDto findById(String id) {
         Trip trip = tripRepo.findById(id)
@@ -153,6 +156,16 @@ public class TripServiceImpl implements TripService {
         return toResponseTripDto(trip);
     }
 
+    private String busIdOf(Schedule schedule) {
+        return schedule.getBus() != null ? schedule.getBus().getId() : null;
+    }
+
+    private String driverIdOf(Schedule schedule) {
+        return schedule.getBus() != null && schedule.getBus().getDriver() != null
+                ? schedule.getBus().getDriver().getId()
+                : null;
+    }
+
     private ResponseTripDto toResponseTripDto(Trip trip) {
         if (trip == null) {
             return null;
@@ -170,7 +183,7 @@ public class TripServiceImpl implements TripService {
                 .routeId(schedule != null && schedule.getRoute() != null
                         ? schedule.getRoute().getRouteName()
                         : "N/A")
-                .date(trip.getDate())
+                .date(DateUtils.format(trip.getDate()))
                 .actualDepartureTime(trip.getActualDepartureTime())
                 .actualArrivalTime(trip.getActualArrivalTime())
                 .passengerCount(trip.getPassengerCount())
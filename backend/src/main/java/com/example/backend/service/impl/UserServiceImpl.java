@@ -7,11 +7,13 @@ import com.example.backend.dto.response.paginate.PaginateUserDto;
 import com.example.backend.entity.User;
 import com.example.backend.exception.EntryNotFoundException;
 import com.example.backend.repository.UserRepo;
+import com.example.backend.service.DashboardKpiCache;
+import com.example.backend.service.DriverAssignmentCache;
+import com.example.backend.service.KeysetPager;
 import com.example.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -27,6 +29,12 @@ public class UserServiceImpl implements UserService {
     private final UserRepo userRepo;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private DriverAssignmentCache driverAssignmentCache;
+    @Autowired
+    private DashboardKpiCache dashboardKpiCache;
+    @Autowired
+    private KeysetPager keysetPager;
 
     @Override
     public Optional<User> authenticate(String username, String password) {
@@ -37,12 +45,16 @@ public class UserServiceImpl implements UserService {
     @Override
     public void save(RequestUserDto dto) {
         userRepo.save(toUser(dto));
+        dashboardKpiCache.invalidateFleetCounts();
     }
 
     @Override
     public boolean delete(String id) {
-        if (userRepo.existsById(id)) {
+        Optional<User> user = userRepo.findById(id);
+        if (user.isPresent()) {
             userRepo.deleteById(id);
+            driverAssignmentCache.invalidate(user.get().getUsername());
+            dashboardKpiCache.invalidateFleetCounts();
             return true;
         }
         return false;
@@ -56,6 +68,8 @@ public class UserServiceImpl implements UserService {
     @Override
     public void updateById(RequestUserDto dto, String id) {
         User user = userRepo.findById(id).orElseThrow(()-> new EntryNotFoundException("User Not Founded"));
+        // Assignments are cached by username, which may be changing here
+        driverAssignmentCache.invalidate(user.getUsername());
         user.setName(dto.getName());
         user.setEmail(dto.getEmail());
         user.setMobile(dto.getMobile());
@@ -69,14 +83,18 @@ public class UserServiceImpl implements UserService {
             user.setPassword(passwordEncoder.encode(dto.getPassword()));
         } 
         userRepo.save(user);
+        driverAssignmentCache.invalidate(user.getUsername());
+        // Roles may have changed, which changes the driver count
+        dashboardKpiCache.invalidateFleetCounts();
     }
 
     @Override
-    public PaginateUserDto search(String searchText, int page, int size) {
-        Page<User> userList = userRepo.searchAll(searchText, PageRequest.of(page,size));
+    public PaginateUserDto search(String searchText, int page, int size, String cursor, boolean withCount) {
+        KeysetPager.Slice<User> userList = keysetPager.search(searchText, Sort.by("_id"), cursor, page, size, withCount, User.class);
         return PaginateUserDto.builder()
-                .dataList(userList.stream().map(this::toResponseUserDto).toList())
-                .count(userList.getTotalElements())
+                .dataList(userList.content().stream().map(this::toResponseUserDto).toList())
+                .count(userList.total())
+                .nextCursor(userList.nextCursor())
                 .build();
     }
 
@@ -0,0 +1,54 @@
+package com.example.backend.util;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+
+import java.time.ZoneId;
+import java.util.List;
+
+// Helpers for aggregation stages the typed Spring Data API cannot express
+public final class AggregationUtils {
+
+    private AggregationUtils() {
+    }
+
+    // A raw pipeline stage, e.g. stage("$group", ...)
+    public static AggregationOperation stage(String operator, Document body) {
+        return context -> new Document(operator, body);
+    }
+
+    /**
+     * Expression for the id stored in a DBRef field. Pipelines cannot reference
+     * "field.$id" directly, so the ref is turned into its [$ref, $id] pairs and
+     * the second value is taken. Null when the field is missing.
+     */
+    public static Document refId(String fieldPath) {
+        return new Document("$arrayElemAt", List.of(
+                new Document("$map", new Document("input", new Document("$objectToArray", fieldPath))
+                        .append("in", "$$this.v")),
+                1));
+    }
+
+    /**
+     * Values a stored reference to the given id may hold. Generated ids are
+     * saved as ObjectIds, so a string id is matched in both forms.
+     */
+    public static List<Object> idValues(String id) {
+        return ObjectId.isValid(id) ? List.of(new ObjectId(id), id) : List.of(id);
+    }
+
+    /**
+     * Expression giving a date field as a yyyy-MM-dd string. Dates are stored as
+     * BSON dates at midnight in the server's zone; rows the date migration has
+     * not reached yet still hold the string itself.
+     */
+    public static Document dayString(String fieldPath) {
+        return new Document("$cond", List.of(
+                new Document("$eq", List.of(new Document("$type", fieldPath), "string")),
+                fieldPath,
+                new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                        .append("date", fieldPath)
+                        .append("timezone", ZoneId.systemDefault().getId()))));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.backend.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+// Conversions between the date values used by the API and those stored or compared on the server
+public final class DateUtils {
+
+    private DateUtils() {
+    }
+
+    // Null for a missing or blank value; anything else must be yyyy-MM-dd
+    public static LocalDate parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + value + "', expected yyyy-MM-dd");
+        }
+    }
+
+    // Like parse, but returns null instead of failing on a malformed value
+    public static LocalDate tryParse(String value) {
+        try {
+            return parse(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Like parse, but also accepts the forms maintenance dates used to be saved in
+     * before they were stored as dates: a date-time whose first ten characters are
+     * the day (as a browser's toISOString sends it) and yyyy/MM/dd.
+     */
+    public static LocalDate parseLenient(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.trim().replace('/', '-');
+        if (text.length() > 10 && (text.charAt(10) == 'T' || text.charAt(10) == ' ')) {
+            text = text.substring(0, 10);
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + value + "', expected yyyy-MM-dd");
+        }
+    }
+
+    public static String format(LocalDate date) {
+        return date != null ? date.toString() : null;
+    }
+
+    /**
+     * A date field read from a raw document. Spring stores a LocalDate as a
+     * Date at midnight in the server's zone; rows not yet migrated still hold a string.
+     */
+    public static LocalDate fromStored(Object value) {
+        if (value instanceof Date date) {
+            return LocalDate.ofInstant(date.toInstant(), ZoneId.systemDefault());
+        }
+        if (value instanceof String text) {
+            return tryParse(text);
+        }
+        return null;
+    }
+
+    /**
+     * A device timestamp sent as UTC ('Z') and read into a LocalDateTime, moved to
+     * the server's zone so it compares with schedule times and LocalDateTime.now().
+     */
+    public static LocalDateTime fromUtc(LocalDateTime utc) {
+        if (utc == null) {
+            return null;
+        }
+        return utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.backend.util;
+
+import com.mongodb.DBRef;
+import org.bson.Document;
+
+// Reading references out of raw documents, where Spring does not resolve them
+public final class DocumentRefs {
+
+    private DocumentRefs() {
+    }
+
+    // The referenced id as a string; a DBRef may come back decoded or as its {$ref, $id} document
+    public static String idOf(Object ref) {
+        if (ref instanceof DBRef dbRef) {
+            return dbRef.getId().toString();
+        }
+        if (ref instanceof Document document && document.get("$id") != null) {
+            return document.get("$id").toString();
+        }
+        return null;
+    }
+}
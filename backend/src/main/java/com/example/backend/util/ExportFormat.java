@@ -0,0 +1,31 @@
+package com.example.backend.util;
+
+import org.springframework.http.MediaType;
+
+import java.time.LocalDate;
+
+// Request handling shared by the CSV / NDJSON export endpoints
+public final class ExportFormat {
+
+    private ExportFormat() {
+    }
+
+    public static MediaType mediaType(String format) {
+        return "ndjson".equalsIgnoreCase(format)
+                ? MediaType.parseMediaType("application/x-ndjson")
+                : MediaType.parseMediaType("text/csv");
+    }
+
+    public static String extension(String format) {
+        return "ndjson".equalsIgnoreCase(format) ? ".ndjson" : ".csv";
+    }
+
+    // Both dates must be yyyy-MM-dd and in order
+    public static boolean isValidRange(String fromDate, String toDate) {
+        try {
+            return !LocalDate.parse(toDate).isBefore(LocalDate.parse(fromDate));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
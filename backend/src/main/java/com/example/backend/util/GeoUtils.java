@@ -0,0 +1,57 @@
+package com.example.backend.util;
+
+// Small spherical-earth helpers shared by the location features
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_METRES = 6_371_000.0;
+
+    private GeoUtils() {
+    }
+
+    // Great-circle distance between two coordinates in metres (haversine)
+    public static double distanceMetres(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METRES * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // Initial bearing from the first coordinate to the second, in degrees 0-360
+    public static double bearingDegrees(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double y = Math.sin(dLon) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLon);
+        return (Math.toDegrees(Math.atan2(y, x)) + 360.0) % 360.0;
+    }
+
+    // Smallest absolute difference between two headings, in degrees 0-180
+    public static double headingDelta(double a, double b) {
+        double d = Math.abs(a - b) % 360.0;
+        return d > 180.0 ? 360.0 - d : d;
+    }
+
+    /**
+     * Distance in metres from a point to the segment between two others.
+     * Uses a local flat projection around the segment start, which is accurate
+     * for the few hundred metres between consecutive GPS fixes.
+     */
+    public static double distanceToSegmentMetres(double lat, double lon,
+                                                 double lat1, double lon1, double lat2, double lon2) {
+        double cosLat = Math.cos(Math.toRadians(lat1));
+        double px = Math.toRadians(lon - lon1) * cosLat * EARTH_RADIUS_METRES;
+        double py = Math.toRadians(lat - lat1) * EARTH_RADIUS_METRES;
+        double ex = Math.toRadians(lon2 - lon1) * cosLat * EARTH_RADIUS_METRES;
+        double ey = Math.toRadians(lat2 - lat1) * EARTH_RADIUS_METRES;
+
+        double lengthSquared = ex * ex + ey * ey;
+        if (lengthSquared == 0) {
+            return Math.hypot(px, py);
+        }
+        double t = Math.max(0, Math.min(1, (px * ex + py * ey) / lengthSquared));
+        return Math.hypot(px - t * ex, py - t * ey);
+    }
+}
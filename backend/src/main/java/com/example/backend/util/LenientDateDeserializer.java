@@ -0,0 +1,22 @@
+package com.example.backend.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+// Reads a JSON date with DateUtils.parseLenient, for request bodies that bind straight to an entity
+public class LenientDateDeserializer extends JsonDeserializer<LocalDate> {
+
+    @Override
+    public LocalDate deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        String text = parser.getValueAsString();
+        try {
+            return DateUtils.parseLenient(text);
+        } catch (IllegalArgumentException e) {
+            throw context.weirdStringException(text, LocalDate.class, e.getMessage());
+        }
+    }
+}
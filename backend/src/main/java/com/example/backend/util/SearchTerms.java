@@ -0,0 +1,36 @@
+package com.example.backend.util;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Word prefixes for the text indexes. A text index only matches whole words,
+ * so "jo" would not find "john"; storing "jo joh" next to the words lets a
+ * partly typed word match as it did with the old regex search.
+ */
+public final class SearchTerms {
+
+    private static final int MIN_PREFIX = 2;
+    // Longer prefixes add little and make the indexed text large
+    private static final int MAX_PREFIX = 12;
+
+    private SearchTerms() {
+    }
+
+    // The prefixes of every word in the values, shortest first, without the words themselves
+    public static String prefixes(Iterable<String> values) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            for (String word : value.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                for (int length = MIN_PREFIX; length < word.length() && length <= MAX_PREFIX; length++) {
+                    prefixes.add(word.substring(0, length));
+                }
+            }
+        }
+        return String.join(" ", prefixes);
+    }
+}
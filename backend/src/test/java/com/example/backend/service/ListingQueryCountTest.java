@@ -0,0 +1,145 @@
+package com.example.backend.service;
+
+import com.example.backend.config.MongoConfig;
+import com.example.backend.config.QueryCounter;
+import com.example.backend.entity.Bus;
+import com.example.backend.entity.Route;
+import com.example.backend.entity.Schedule;
+import com.example.backend.entity.Trip;
+import com.example.backend.entity.User;
+import com.example.backend.service.impl.BusServiceImpl;
+import com.example.backend.service.impl.TripServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The list endpoints resolve references in batches, so listing 50 rows must
+ * cost as many queries as listing one. Runs against a MongoDB container and
+ * is skipped where Docker is not available.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+@Import({MongoConfig.class, QueryCounter.class, BatchReferenceLoader.class, KeysetPager.class,
+        TripServiceImpl.class, ScheduleService.class, BusServiceImpl.class})
+class ListingQueryCountTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @MockitoBean
+    private IncomeRollupService incomeRollupService;
+    @MockitoBean
+    private DashboardKpiCache dashboardKpiCache;
+    @MockitoBean
+    private ActiveScheduleCache activeScheduleCache;
+    @MockitoBean
+    private AssignmentKeyService assignmentKeyService;
+    @MockitoBean
+    private SearchTextService searchTextService;
+    @MockitoBean
+    private DriverAssignmentCache driverAssignmentCache;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private QueryCounter queryCounter;
+    @Autowired
+    private TripServiceImpl tripService;
+    @Autowired
+    private ScheduleService scheduleService;
+    @Autowired
+    private BusServiceImpl busService;
+
+    @BeforeEach
+    void clear() {
+        for (Class<?> type : new Class<?>[]{Trip.class, Schedule.class, Bus.class, Route.class, User.class}) {
+            mongoTemplate.remove(new Query(), type);
+        }
+    }
+
+    @Test
+    void allTripsCostTheSameForOneRowAndFifty() {
+        assertSameQueryCount(() -> tripService.getAllTrips().size());
+    }
+
+    @Test
+    void pagedTripsCostTheSameForOneRowAndFifty() {
+        assertSameQueryCount(() -> tripService.search("", 0, 100, null, true).getDataList().size());
+    }
+
+    @Test
+    void allSchedulesCostTheSameForOneRowAndFifty() {
+        assertSameQueryCount(() -> scheduleService.getAllSchedules().size());
+    }
+
+    @Test
+    void allBusesCostTheSameForOneRowAndFifty() {
+        assertSameQueryCount(() -> busService.getAllBuses().size());
+    }
+
+    private void assertSameQueryCount(Supplier<Integer> listing) {
+        seed(1);
+        int one = countQueries(listing, 1);
+        clear();
+        seed(50);
+        int fifty = countQueries(listing, 50);
+        assertEquals(one, fifty, "Listing 50 rows took " + fifty + " queries, listing 1 took " + one);
+    }
+
+    private int countQueries(Supplier<Integer> listing, int expectedRows) {
+        queryCounter.begin();
+        try {
+            assertEquals(expectedRows, listing.get());
+            return queryCounter.count();
+        } finally {
+            queryCounter.end();
+        }
+    }
+
+    // Each trip gets its own schedule, bus, driver and route, so nothing is shared between rows
+    private void seed(int rows) {
+        for (int i = 0; i < rows; i++) {
+            User driver = User.builder().name("Driver " + i).username("driver" + i).roles(Set.of("DRIVER")).build();
+            mongoTemplate.save(driver);
+
+            Bus bus = new Bus("B-" + i, 50, "Synthetic");
+            bus.setDriver(driver);
+            mongoTemplate.save(bus);
+
+            Route route = new Route("Route " + i, "Start " + i, "End " + i, 10.0);
+            mongoTemplate.save(route);
+
+            Schedule schedule = new Schedule("S-" + i, LocalTime.of(8, 0), LocalTime.of(9, 0), LocalDate.of(2025, 1, 1), "completed");
+            schedule.setBus(bus);
+            schedule.setRoute(route);
+            mongoTemplate.save(schedule);
+
+            mongoTemplate.save(Trip.builder()
+                    .schedule(schedule)
+                    .busId(bus.getId())
+                    .driverId(driver.getId())
+                    .date(LocalDate.of(2025, 1, 1).plusDays(i))
+                    .passengerCount(40)
+                    .income(5000)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.entity.Bus;
+import com.example.backend.repository.BusRepository;
+import com.example.backend.service.IncomeRollupService;
+import com.example.backend.service.ReportComputePool;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that the all-buses report adds up to the same totals however many
+ * workers split the range, on a synthetic rollup. It needs a MongoDB server
+ * and only runs when one is given:
+ *
+ *   mvn test -Dtest=AllBusesReportPartitionTest -Dreport.test.mongo.uri=mongodb://localhost:27017
+ *
+ * Optional: -Dreport.test.years (default 1), -Dreport.test.buses (default 200).
+ * The rollup is written to a throwaway database that is dropped afterwards.
+ * The report is run on pools of 1, 2, 4 ... up to the number of cores; with
+ * one worker the whole range is a single aggregation.
+ */
+@EnabledIfSystemProperty(named = "report.test.mongo.uri", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AllBusesReportPartitionTest {
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private List<Bus> buses;
+    private LocalDate from;
+    private LocalDate to;
+
+    @BeforeAll
+    void seedRollup() {
+        int years = Integer.getInteger("report.test.years", 1);
+        int busCount = Integer.getInteger("report.test.buses", 200);
+
+        client = MongoClients.create(System.getProperty("report.test.mongo.uri"));
+        mongoTemplate = new MongoTemplate(client, "report_partition_test_" + System.currentTimeMillis());
+        mongoTemplate.indexOps(IncomeRollupService.COLLECTION)
+                .ensureIndex(new Index().on("date", Sort.Direction.ASC).on("busId", Sort.Direction.ASC));
+
+        buses = new ArrayList<>(busCount);
+        for (int i = 0; i < busCount; i++) {
+            Bus bus = new Bus("B-" + i, 50, "Synthetic");
+            bus.setId("bus-" + i);
+            buses.add(bus);
+        }
+
+        // One row per bus per day, as the nightly rebuild writes it
+        to = LocalDate.of(2025, 12, 31);
+        from = to.minusYears(years).plusDays(1);
+        Random random = new Random(42);
+        List<Document> rows = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            for (Bus bus : buses) {
+                int trips = 1 + random.nextInt(6);
+                rows.add(new Document("_id", day + ":" + bus.getId() + ":route-" + (random.nextInt(20)))
+                        .append("date", day.toString())
+                        .append("busId", bus.getId())
+                        .append("tripCount", (long) trips)
+                        .append("passengerCount", (long) trips * 40)
+                        .append("income", (long) trips * 5000));
+            }
+            if (rows.size() >= 10_000) {
+                mongoTemplate.getCollection(IncomeRollupService.COLLECTION).insertMany(rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            mongoTemplate.getCollection(IncomeRollupService.COLLECTION).insertMany(rows);
+        }
+    }
+
+    @AfterAll
+    void dropRollup() {
+        if (mongoTemplate != null) {
+            mongoTemplate.getDb().drop();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void everySplitGivesTheSameReport() {
+        long expectedIncome = -1;
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int workers = 1; workers <= cores; workers = workers < cores ? Math.min(workers * 2, cores) : workers + 1) {
+            ReportComputePool pool = new ReportComputePool(workers);
+            try {
+                long income = service(pool).getAllBusesReport(from.toString(), to.toString()).getTotalIncome();
+                if (expectedIncome < 0) {
+                    expectedIncome = income;
+                }
+                assertEquals(expectedIncome, income, "Report on " + workers + " workers differs from one aggregation");
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private AllBusesReportServiceImpl service(ReportComputePool pool) {
+        BusRepository busRepository = mock(BusRepository.class);
+        when(busRepository.findAll()).thenReturn(buses);
+
+        AllBusesReportServiceImpl service = new AllBusesReportServiceImpl();
+        ReflectionTestUtils.setField(service, "busRepository", busRepository);
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "reportComputePool", pool);
+        return service;
+    }
+}
@@ -29,8 +29,9 @@ function DriverNavbar({ children }) {
         // Request location permission
         const location = await locationService.getCurrentLocation();
         console.log(location);
-        // Send initial location to backend
-        await locationService.updateDriverLocation({
+        // Send location to backend, with any points buffered while offline;
+        // the server answers with when to report next
+        const result = await locationService.reportDriverLocation({
           latitude: location.latitude,
           longitude: location.longitude,
           accuracy: location.accuracy,
@@ -39,6 +40,7 @@ function DriverNavbar({ children }) {
         });
   
         console.log('Driver location tracking started');
+        return result?.nextReportIntervalSeconds;
       } catch (error) {
         console.log(error);
         console.warn('Location access denied or unavailable:', error.message);
@@ -68,10 +70,21 @@ function DriverNavbar({ children }) {
     
   }, []);
   useEffect(() => {
-    handleDriverLocationSetup();
-    const interval = setInterval(handleDriverLocationSetup, 30000);
-    
-    return () => clearInterval(interval);
+    // Report on the interval suggested by the server, falling back to 30 seconds
+    let timeout;
+    let cancelled = false;
+    const report = async () => {
+      const nextSeconds = await handleDriverLocationSetup();
+      if (!cancelled) {
+        timeout = setTimeout(report, (nextSeconds || 30) * 1000);
+      }
+    };
+    report();
+
+    return () => {
+      cancelled = true;
+      clearTimeout(timeout);
+    };
   },[]);
 
   const handleLogout = async () => {
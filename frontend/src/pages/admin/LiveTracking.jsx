@@ -1,4 +1,6 @@
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
+import { Client } from "@stomp/stompjs";
+import SockJS from "sockjs-client";
 import { MapContainer, TileLayer, Marker, Popup } from "react-leaflet";
 import L from "leaflet";
 import "leaflet/dist/leaflet.css";
@@ -27,8 +29,58 @@ export const LiveTracking = () => {
   const [error, setError] = useState(null);
   const [lastRefresh, setLastRefresh] = useState(null);
 
+  // Transform backend response to match frontend expectations
+  const formatDriver = (driver) => ({
+    id: driver.id || driver.driverUsername,
+    username: driver.driverUsername,
+    busNumber: driver.busNumber || 'Not Assigned',
+    route: 'Route not specified', // You can enhance this later
+    latitude: driver.latitude,
+    longitude: driver.longitude,
+    lastUpdate: driver.updatedAt || driver.timestamp,
+    status: driver.status,
+    accuracy: driver.accuracy || 0
+  });
+
+  // Deltas that arrive while a snapshot request is in flight, replayed on top of it once it lands
+  const bufferedDeltas = useRef(null);
+  const snapshotRequest = useRef(0);
+
+  // Merge position deltas into a list of drivers. With onlyNewer, a delta that is not
+  // newer than the driver's entry in the list is skipped
+  const mergeDeltas = (list, deltas, onlyNewer) => {
+    const byUsername = new Map(list.map((d) => [d.username, d]));
+    deltas.forEach((delta) => {
+      const current = byUsername.get(delta.driverUsername);
+      if (onlyNewer && current && new Date(delta.updatedAt || delta.timestamp) <= new Date(current.lastUpdate)) {
+        return;
+      }
+      if (delta.status === 'offline') {
+        byUsername.delete(delta.driverUsername);
+      } else {
+        byUsername.set(delta.driverUsername, formatDriver(delta));
+      }
+    });
+    return Array.from(byUsername.values());
+  };
+
+  // Merge a batch of position deltas pushed by the server into the current list
+  const applyDeltas = (deltas) => {
+    if (bufferedDeltas.current) {
+      bufferedDeltas.current.push(...deltas);
+      return;
+    }
+    setDrivers((prev) => mergeDeltas(prev, deltas, false));
+    setLastRefresh(new Date());
+  };
+
   // Fetch real driver locations from backend
   const fetchDriverLocations = async () => {
+    const request = ++snapshotRequest.current;
+    if (!bufferedDeltas.current) {
+      bufferedDeltas.current = [];
+    }
+    let snapshot = [];
     try {
       setLoading(true);
       const token = localStorage.getItem('token');
@@ -51,27 +103,13 @@ export const LiveTracking = () => {
       }
       console.log('Processed driver data:', driverData);
 
-      // Transform backend response to match frontend expectations
-      const formattedDrivers = driverData.map(driver => ({
-        id: driver.id || driver.driverUsername,
-        username: driver.driverUsername,
-        busNumber: driver.busNumber || 'Not Assigned',
-        route: 'Route not specified', // You can enhance this later
-        latitude: driver.latitude,
-        longitude: driver.longitude,
-        lastUpdate: driver.updatedAt || driver.timestamp,
-        status: driver.status,
-        accuracy: driver.accuracy || 0
-      }));
-      
-      setDrivers(formattedDrivers);
-      setLastRefresh(new Date());
+      snapshot = driverData.map(formatDriver);
       setError(null);
     } catch (err) {
       console.error('Error fetching driver locations:', err);
       setError('Failed to fetch driver locations');
       // Fallback to mock data for development
-      setDrivers([
+      snapshot = [
         {
           id: "D001",
           username: "john_driver",
@@ -94,19 +132,55 @@ export const LiveTracking = () => {
           status: "active",
           accuracy: 20
         }
-      ]);
+      ];
     } finally {
-      setLoading(false);
+      // A newer request owns the buffer, so this response is already out of date
+      if (request === snapshotRequest.current) {
+        const deltas = bufferedDeltas.current || [];
+        bufferedDeltas.current = null;
+        setDrivers(mergeDeltas(snapshot, deltas, true));
+        setLastRefresh(new Date());
+        setLoading(false);
+      }
     }
   };
 
   useEffect(() => {
+    // Snapshot for the initial load, then live deltas over STOMP. Deltas missed while
+    // the connection was down are covered by a fresh snapshot on every reconnect
     fetchDriverLocations();
+    let connected = false;
+
+    const token = localStorage.getItem('token');
+    const client = new Client({
+      webSocketFactory: () => new SockJS(import.meta.env.VITE_API_URL + "/ws"),
+      reconnectDelay: 5000,
+      debug: () => {},
+      connectHeaders: {
+        Authorization: `Bearer ${token}`,
+      },
+      onConnect: () => {
+        client.subscribe("/topic/admin/driver-locations", (msg) => {
+          try {
+            const deltas = JSON.parse(msg.body);
+            if (Array.isArray(deltas)) {
+              applyDeltas(deltas);
+            }
+          } catch (err) {
+            console.error('Error parsing driver location update:', err);
+          }
+        });
+        if (connected) {
+          fetchDriverLocations();
+        }
+        connected = true;
+      },
+    });
+    client.activate();
 
-    // Auto-refresh every 10 seconds
-    const interval = setInterval(fetchDriverLocations, 10000);
-    
-    return () => clearInterval(interval);
+    return () => {
+      client.deactivate();
+    };
   }, []);
 
   const getDriverStatus = (status, lastUpdate) => {
@@ -1,5 +1,18 @@
 import axios from '../config.js';
 
+// Points that could not be sent, kept until the next report succeeds
+const PENDING_KEY = 'pendingLocations';
+// Matches the server's batch limit
+const MAX_PENDING = 500;
+
+const readPending = () => {
+  try {
+    return JSON.parse(localStorage.getItem(PENDING_KEY)) || [];
+  } catch {
+    return [];
+  }
+};
+
 export const locationService = {
   // Send location to backend (for drivers)
   updateDriverLocation: async (locationData) => {
@@ -18,6 +31,55 @@ export const locationService = {
     }
   },
 
+  // Send buffered points in one request; the server drops points it has already seen
+  updateDriverLocationBatch: async (points) => {
+    try {
+      const token = localStorage.getItem('token');
+      const response = await axios.post('/location/driver/location/batch', { points }, {
+        headers: {
+          Authorization: `Bearer ${token}`
+        }
+      });
+      return response.data;
+    } catch (error) {
+      console.error('Error updating locations:', error);
+      throw error;
+    }
+  },
+
+  // Send a point, together with any points that failed to send earlier.
+  // Returns the live position response; on failure the point is kept for the next report.
+  reportDriverLocation: async (locationData) => {
+    const pending = readPending();
+    if (pending.length === 0) {
+      try {
+        const result = await locationService.updateDriverLocation(locationData);
+        return result?.data;
+      } catch (error) {
+        if (!error.response) {
+          localStorage.setItem(PENDING_KEY, JSON.stringify([locationData]));
+        }
+        throw error;
+      }
+    }
+
+    // Oldest points are dropped first once the buffer is full
+    const points = [...pending, locationData].slice(-MAX_PENDING);
+    try {
+      const result = await locationService.updateDriverLocationBatch(points);
+      localStorage.removeItem(PENDING_KEY);
+      return result?.data?.latest;
+    } catch (error) {
+      if (!error.response) {
+        localStorage.setItem(PENDING_KEY, JSON.stringify(points));
+      } else {
+        // The server rejected the batch itself; resending it would fail the same way
+        localStorage.removeItem(PENDING_KEY);
+      }
+      throw error;
+    }
+  },
+
   // Get all driver locations (for admin)
   getAllDriverLocations: async () => {
     try {